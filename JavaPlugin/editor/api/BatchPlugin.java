@@ -0,0 +1,59 @@
+package editor.api;
+
+/**
+ * A plugin that can also run without a GUI, for example from the batch runner.
+ * <p>
+ * {@link #process(String)} must not touch Swing and must be safe to call from
+ * several threads at once.
+ */
+public interface BatchPlugin extends Plugin {
+
+    /**
+     * Processes a whole document.
+     *
+     * @param text The document text.
+     * @return The outcome, including the new text if the plugin changed it.
+     */
+    Result process(String text);
+
+    /**
+     * Outcome of processing one document.
+     */
+    final class Result {
+        private final String text;
+        private final String message;
+
+        private Result(String text, String message) {
+            this.text = text;
+            this.message = message;
+        }
+
+        /**
+         * The document was transformed into {@code text}.
+         */
+        public static Result changed(String text, String message) {
+            return new Result(text, message);
+        }
+
+        /**
+         * The document was analysed or left as it was.
+         */
+        public static Result unchanged(String message) {
+            return new Result(null, message);
+        }
+
+        /**
+         * @return The new text, or null if the document is unchanged.
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return A one-line summary for reports.
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package editor.api;
+
+import javax.swing.JTextArea;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.text.BreakIterator;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Applies a text transform to a large selection or document in parallel, and writes
+ * back only the ranges that actually changed.
+ * <p>
+ * Character-level transforms (case changes, trimming) run on chunks of whole lines, so
+ * no chunk boundary splits a surrogate pair, a word or a locale-sensitive casing context.
+ * Line-level transforms (sorting, de-duplicating) see the whole list of lines at once.
+ * Either way the result is compared with the original line by line, and each run of
+ * changed lines becomes one {@link Replacement}.
+ * <p>
+ * The editor records everything a plugin does during {@code execute} as one undo step,
+ * so {@link #applyTo(JTextArea)} is a single undoable edit however many ranges it writes.
+ */
+public final class BulkTransform {
+
+    /** Rough chunk size; chunks are extended to the next line break. */
+    private static final int CHUNK_CHARS = 64 * 1024;
+    /** Changed ranges separated by no more than this many unchanged chars are written as one. */
+    private static final int MERGE_GAP_CHARS = 64;
+
+    /**
+     * Transforms a chunk of text. Called concurrently on different chunks, so it must not
+     * keep state between calls.
+     */
+    public interface ChunkFunction {
+        String apply(String chunk);
+    }
+
+    /** Transforms a list of lines, given without their line terminators. */
+    public interface LinesFunction {
+        List<String> apply(List<String> lines);
+    }
+
+    /** Replace {@code length} chars at {@code offset} with {@code text}. */
+    public static final class Replacement {
+        public final int offset;
+        public final int length;
+        public final String text;
+
+        Replacement(int offset, int length, String text) {
+            this.offset = offset;
+            this.length = length;
+            this.text = text;
+        }
+    }
+
+    private final ChunkFunction chunkFunction;
+    private final LinesFunction linesFunction;
+    private final boolean wholeLines;
+
+    private BulkTransform(ChunkFunction chunkFunction, LinesFunction linesFunction, boolean wholeLines) {
+        this.chunkFunction = chunkFunction;
+        this.linesFunction = linesFunction;
+        this.wholeLines = wholeLines;
+    }
+
+    /**
+     * A transform applied independently to chunks of whole lines. It acts on exactly
+     * the selected text, and does nothing when there is no selection.
+     */
+    public static BulkTransform perChunk(ChunkFunction function) {
+        return new BulkTransform(function, null, false);
+    }
+
+    /**
+     * A transform over the list of lines. It acts on every line the selection touches,
+     * or on the whole document when there is no selection.
+     */
+    public static BulkTransform perLines(LinesFunction function) {
+        return new BulkTransform(null, function, true);
+    }
+
+    /**
+     * The same transform, applied in the editor to every line the selection touches, or
+     * to the whole document when there is no selection. Its chunks always end at a line
+     * break, so it may rely on seeing every line whole.
+     */
+    public BulkTransform onWholeLines() {
+        return new BulkTransform(chunkFunction, linesFunction, true);
+    }
+
+    public static BulkTransform upperCase(Locale locale) {
+        return perChunk(chunk -> chunk.toUpperCase(locale));
+    }
+
+    public static BulkTransform lowerCase(Locale locale) {
+        return perChunk(chunk -> chunk.toLowerCase(locale));
+    }
+
+    /** Capitalises the first letter of every word and lowercases the rest. */
+    public static BulkTransform titleCase(Locale locale) {
+        return perChunk(chunk -> {
+            BreakIterator words = BreakIterator.getWordInstance(locale);
+            words.setText(chunk);
+            StringBuilder out = new StringBuilder(chunk.length());
+            int start = words.first();
+            for (int end = words.next(); end != BreakIterator.DONE; start = end, end = words.next()) {
+                int first = chunk.codePointAt(start);
+                if (!Character.isLetter(first)) {
+                    out.append(chunk, start, end);
+                    continue;
+                }
+                int rest = start + Character.charCount(first);
+                if (Character.toTitleCase(first) != Character.toUpperCase(first)) {
+                    out.appendCodePoint(Character.toTitleCase(first)); // digraphs such as "Dz"
+                } else {
+                    out.append(chunk.substring(start, rest).toUpperCase(locale));
+                }
+                out.append(chunk.substring(rest, end).toLowerCase(locale));
+            }
+            return out.toString();
+        });
+    }
+
+    /** Removes spaces, tabs and other blanks at the end of every line. */
+    public static BulkTransform trimTrailingWhitespace() {
+        return perChunk(chunk -> {
+            StringBuilder out = new StringBuilder(chunk.length());
+            int start = 0;
+            while (start <= chunk.length()) {
+                int newline = chunk.indexOf('\n', start);
+                int lineEnd = newline < 0 ? chunk.length() : newline;
+                int contentEnd = lineEnd > start && chunk.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                int end = contentEnd;
+                while (end > start && isBlank(chunk.charAt(end - 1))) end--;
+                out.append(chunk, start, end).append(chunk, contentEnd, lineEnd);
+                if (newline < 0) break;
+                out.append('\n');
+                start = newline + 1;
+            }
+            return out.toString();
+        }).onWholeLines();
+    }
+
+    /** Sorts lines by the collation rules of {@code locale}; equal lines keep their order. */
+    public static BulkTransform sortLines(Locale locale) {
+        return perLines(lines -> {
+            // Collators are not thread-safe and RuleBasedCollator.compare is synchronized,
+            // so compute the keys in parallel with one collator per thread, then sort keys.
+            ThreadLocal<Collator> collator = ThreadLocal.withInitial(() -> Collator.getInstance(locale));
+            CollationKey[] keys = new CollationKey[lines.size()];
+            IntStream.range(0, keys.length).parallel()
+                     .forEach(i -> keys[i] = collator.get().getCollationKey(lines.get(i)));
+            Integer[] order = new Integer[keys.length];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.parallelSort(order, Comparator.comparing(i -> keys[i])); // stable
+            List<String> sorted = new ArrayList<>(order.length);
+            for (Integer i : order) sorted.add(lines.get(i));
+            return sorted;
+        });
+    }
+
+    /** Removes repeated lines, keeping the first occurrence of each. */
+    public static BulkTransform uniqueLines() {
+        return perLines(lines -> new ArrayList<>(new LinkedHashSet<>(lines)));
+    }
+
+    /**
+     * Works out the changes the transform makes to {@code text}. Chunks are copied out of
+     * {@code text} by the worker threads, so a {@link TextSnapshot} is never copied whole.
+     *
+     * @return Non-overlapping replacements in ascending offset order; empty if nothing changes.
+     */
+    public List<Replacement> plan(CharSequence text) {
+        if (text.length() == 0) return Collections.emptyList();
+        if (linesFunction != null) return planLines(text.toString());
+
+        List<int[]> chunks = new ArrayList<>();
+        for (int start = 0; start < text.length(); ) {
+            int end = chunkEnd(text, start, wholeLines);
+            chunks.add(new int[] {start, end});
+            start = end;
+        }
+        List<List<Replacement>> parts = chunks.parallelStream()
+                .map(chunk -> {
+                    String source = text.subSequence(chunk[0], chunk[1]).toString();
+                    return diff(source, chunkFunction.apply(source), chunk[0]);
+                })
+                .collect(Collectors.toList());
+        List<Replacement> all = new ArrayList<>();
+        for (List<Replacement> part : parts) all.addAll(part);
+        return merge(text, all);
+    }
+
+    /**
+     * @return The transformed text, or {@code text} itself if nothing changes.
+     */
+    public String applyTo(String text) {
+        List<Replacement> edits = plan(text);
+        if (edits.isEmpty()) return text;
+        StringBuilder out = new StringBuilder(text.length());
+        int copied = 0;
+        for (Replacement edit : edits) {
+            out.append(text, copied, edit.offset).append(edit.text);
+            copied = edit.offset + edit.length;
+        }
+        return out.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Transforms the selection of {@code textArea} in place and selects the result.
+     * Must be called on the Event Dispatch Thread.
+     *
+     * @return The number of ranges written; 0 if nothing changed.
+     */
+    public int applyTo(JTextArea textArea) {
+        Document doc = textArea.getDocument();
+        int start = textArea.getSelectionStart();
+        int end = textArea.getSelectionEnd();
+        try {
+            if (wholeLines) {
+                if (start == end) {
+                    start = 0;
+                    end = doc.getLength();
+                } else {
+                    start = textArea.getLineStartOffset(textArea.getLineOfOffset(start));
+                    // A selection ending at the start of a line does not include that line.
+                    int lastLine = textArea.getLineOfOffset(end);
+                    if (end != textArea.getLineStartOffset(lastLine)) {
+                        end = Math.min(textArea.getLineEndOffset(lastLine), doc.getLength());
+                    }
+                }
+            }
+            if (start == end) return 0;
+
+            List<Replacement> edits = plan(TextSnapshot.of(doc).subSequence(start, end));
+            int delta = 0;
+            for (int i = edits.size() - 1; i >= 0; i--) {
+                Replacement edit = edits.get(i);
+                if (doc instanceof AbstractDocument) {
+                    ((AbstractDocument) doc).replace(start + edit.offset, edit.length, edit.text, null);
+                } else {
+                    doc.remove(start + edit.offset, edit.length);
+                    doc.insertString(start + edit.offset, edit.text, null);
+                }
+                delta += edit.text.length() - edit.length;
+            }
+            if (!edits.isEmpty()) textArea.select(start, end + delta);
+            return edits.size();
+        } catch (BadLocationException e) {
+            throw new IllegalStateException("Selection changed during transform", e);
+        }
+    }
+
+    private List<Replacement> planLines(String text) {
+        boolean trailingNewline = text.endsWith("\n");
+        String body = trailingNewline ? text.substring(0, text.length() - 1) : text;
+        List<String> lines = Arrays.asList(body.split("\n", -1));
+        String result = String.join("\n", linesFunction.apply(lines)) + (trailingNewline ? "\n" : "");
+        return merge(text, diff(text, result, 0));
+    }
+
+    /**
+     * End of the chunk starting at {@code start}: just after a line break where possible.
+     * Line-oriented transforms such as trimming must see each line whole, so with
+     * {@code wholeLines} a chunk always runs to the next line break, however far away.
+     */
+    private static int chunkEnd(CharSequence text, int start, boolean wholeLines) {
+        int target = start + CHUNK_CHARS;
+        if (target >= text.length()) return text.length();
+        int limit = wholeLines ? text.length() : Math.min(text.length(), target + CHUNK_CHARS);
+        for (int i = target; i < limit; i++) {
+            if (text.charAt(i) == '\n') return i + 1;
+        }
+        if (wholeLines) return text.length(); // the rest is one unterminated line
+        // A very long line: cut between words, and never inside a surrogate pair.
+        for (int i = target; i < limit; i++) {
+            if (Character.isWhitespace(text.charAt(i))) return i + 1;
+        }
+        return Character.isLowSurrogate(text.charAt(target)) ? target + 1 : target;
+    }
+
+    /**
+     * Compares {@code source} with {@code result} line by line and returns a replacement
+     * for each run of changed lines, trimmed to the chars that differ.
+     */
+    private static List<Replacement> diff(String source, String result, int base) {
+        List<Replacement> edits = new ArrayList<>();
+        if (source.equals(result)) return edits;
+        if (countLines(source) != countLines(result)) {
+            addTrimmed(edits, source, 0, source.length(), result, 0, result.length(), base);
+            return edits;
+        }
+
+        int s = 0;
+        int r = 0;
+        int runSource = -1;
+        int runResult = -1;
+        while (true) {
+            int sEnd = lineEnd(source, s);
+            int rEnd = lineEnd(result, r);
+            boolean same = sEnd - s == rEnd - r && source.regionMatches(s, result, r, sEnd - s);
+            if (!same && runSource < 0) {
+                runSource = s;
+                runResult = r;
+            } else if (same && runSource >= 0) {
+                addTrimmed(edits, source, runSource, s, result, runResult, r, base);
+                runSource = -1;
+            }
+            if (sEnd == source.length()) break;
+            s = sEnd;
+            r = rEnd;
+        }
+        if (runSource >= 0) addTrimmed(edits, source, runSource, source.length(), result, runResult, result.length(), base);
+        return edits;
+    }
+
+    /** Adds a replacement for source[sFrom, sTo) -> result[rFrom, rTo) without the common prefix and suffix. */
+    private static void addTrimmed(List<Replacement> edits, String source, int sFrom, int sTo,
+                                   String result, int rFrom, int rTo, int base) {
+        while (sFrom < sTo && rFrom < rTo && source.charAt(sFrom) == result.charAt(rFrom)) {
+            sFrom++;
+            rFrom++;
+        }
+        while (sTo > sFrom && rTo > rFrom && source.charAt(sTo - 1) == result.charAt(rTo - 1)) {
+            sTo--;
+            rTo--;
+        }
+        // Keep surrogate pairs whole so no edit leaves half a character behind.
+        if (sFrom > 0 && Character.isHighSurrogate(source.charAt(sFrom - 1))) {
+            sFrom--;
+            rFrom--;
+        }
+        if (sTo < source.length() && Character.isLowSurrogate(source.charAt(sTo))) {
+            sTo++;
+            rTo++;
+        }
+        if (sFrom < sTo || rFrom < rTo) edits.add(new Replacement(base + sFrom, sTo - sFrom, result.substring(rFrom, rTo)));
+    }
+
+    /** Joins replacements that are close together, so the document sees fewer, larger edits. */
+    private static List<Replacement> merge(CharSequence text, List<Replacement> edits) {
+        if (edits.size() < 2) return edits;
+        List<Replacement> merged = new ArrayList<>();
+        Replacement first = edits.get(0);
+        int offset = first.offset;
+        int end = first.offset + first.length;
+        StringBuilder replacement = new StringBuilder(first.text);
+        for (int i = 1; i < edits.size(); i++) {
+            Replacement next = edits.get(i);
+            if (next.offset - end <= MERGE_GAP_CHARS) {
+                replacement.append(text, end, next.offset).append(next.text);
+            } else {
+                merged.add(new Replacement(offset, end - offset, replacement.toString()));
+                offset = next.offset;
+                replacement.setLength(0);
+                replacement.append(next.text);
+            }
+            end = next.offset + next.length;
+        }
+        merged.add(new Replacement(offset, end - offset, replacement.toString()));
+        return merged;
+    }
+
+    /** Index just past the line starting at {@code from}, including its line break. */
+    private static int lineEnd(String text, int from) {
+        int newline = text.indexOf('\n', from);
+        return newline < 0 ? text.length() : newline + 1;
+    }
+
+    private static int countLines(String text) {
+        int lines = 1;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) lines++;
+        return lines;
+    }
+
+    private static boolean isBlank(char c) {
+        return c != '\n' && c != '\r' && (Character.isWhitespace(c) || Character.isSpaceChar(c));
+    }
+}
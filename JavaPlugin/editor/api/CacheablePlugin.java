@@ -0,0 +1,50 @@
+package editor.api;
+
+import javax.swing.JTextArea;
+
+/**
+ * A plugin whose work is a pure analysis of the document, such as counting or checking.
+ * <p>
+ * The editor runs {@link #analyze} only when the document or selection has changed since
+ * the last run and otherwise reuses the previous result, then passes it to {@link #show}.
+ * Hosts that do not cache simply call {@link #execute}, which does both.
+ *
+ * @param <R> The analysis result. It is kept in a cache, so it should be immutable.
+ */
+public interface CacheablePlugin<R> extends Plugin {
+
+    /**
+     * Analyses the document. Must not touch Swing or depend on anything but its arguments.
+     *
+     * @param text The document text, usually a {@link TextSnapshot}. Reading it in place,
+     *             for example with a {@link java.util.regex.Matcher}, avoids copying it.
+     * @param selectionStart Start of the selection, or -1 if {@link #usesSelection()} is false.
+     * @param selectionEnd End of the selection, or -1 if {@link #usesSelection()} is false.
+     * @return The result to show; may be reused for later runs on the same text.
+     */
+    R analyze(CharSequence text, int selectionStart, int selectionEnd);
+
+    /**
+     * Presents a result from {@link #analyze}, for example in a dialog.
+     *
+     * @param textArea The text area the plugin was run on.
+     * @param result The analysis result.
+     */
+    void show(JTextArea textArea, R result);
+
+    /**
+     * Whether the result depends on the selection. Plugins that analyse the whole
+     * document should return false, so that moving the caret keeps their cached results.
+     */
+    default boolean usesSelection() {
+        return true;
+    }
+
+    @Override
+    default void execute(JTextArea textArea) {
+        boolean selection = usesSelection();
+        show(textArea, analyze(TextSnapshot.of(textArea),
+                selection ? textArea.getSelectionStart() : -1,
+                selection ? textArea.getSelectionEnd() : -1));
+    }
+}
@@ -0,0 +1,107 @@
+package editor.api;
+
+import javax.swing.JTextArea;
+import java.util.List;
+
+/**
+ * A plugin that follows edits as they happen, for example to keep live statistics.
+ * <p>
+ * The editor collects the edits made within a short window into a {@link Batch},
+ * merging runs of typing and deleting into single changes, and hands batches to
+ * {@link #documentChanged} on a background thread. Each subscriber has its own small
+ * queue. If a subscriber falls behind and its queue fills up, the queued batches are
+ * dropped and only the newest of each document is kept, marked as not
+ * {@link Batch#isComplete() complete}; when even those do not fit, the oldest are dropped
+ * and the next batch of their document is marked the same way. Typing therefore never
+ * waits for a plugin, however slow it is.
+ */
+public interface ChangeSubscriber extends Plugin {
+
+    /**
+     * Receives the next batch of changes. Called on a background thread, never on the
+     * Event Dispatch Thread, and never concurrently with itself, with batches in the
+     * order they were made. Use {@code SwingUtilities.invokeLater} to update the UI.
+     *
+     * @param batch The changes, and the text they produced.
+     */
+    void documentChanged(Batch batch);
+
+    /**
+     * One edit: {@code removedLength} chars at {@code offset} were replaced by
+     * {@code insertedText}. Offsets refer to the text as it was just before the edit.
+     */
+    final class Change {
+        public final int offset;
+        public final int removedLength;
+        public final CharSequence insertedText;
+        /** The document version after this change. */
+        public final long version;
+
+        public Change(int offset, int removedLength, CharSequence insertedText, long version) {
+            this.offset = offset;
+            this.removedLength = removedLength;
+            this.insertedText = insertedText;
+            this.version = version;
+        }
+
+        @Override
+        public String toString() {
+            return "Change[" + offset + ", -" + removedLength + ", +" + insertedText.length() + ", v" + version + "]";
+        }
+    }
+
+    /**
+     * The changes made to one document within one batching window, in order.
+     */
+    final class Batch {
+        private final JTextArea textArea;
+        private final List<Change> changes;
+        private final TextSnapshot snapshot;
+        private final boolean complete;
+
+        public Batch(JTextArea textArea, List<Change> changes, TextSnapshot snapshot, boolean complete) {
+            this.textArea = textArea;
+            this.changes = changes;
+            this.snapshot = snapshot;
+            this.complete = complete;
+        }
+
+        /**
+         * @return The text area that was edited. It identifies the document; being
+         *         a Swing component, it may only be used on the Event Dispatch Thread.
+         */
+        public JTextArea getTextArea() {
+            return textArea;
+        }
+
+        /**
+         * @return The changes, oldest first. Unmodifiable.
+         */
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        /**
+         * @return The document text after the last change, readable on any thread.
+         */
+        public TextSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * @return The document version after the last change.
+         */
+        public long getVersion() {
+            return changes.get(changes.size() - 1).version;
+        }
+
+        /**
+         * @return False if batches before this one were dropped because the subscriber
+         *         fell behind or was disabled. State built from earlier changes should
+         *         then be rebuilt from {@link #getSnapshot()}.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
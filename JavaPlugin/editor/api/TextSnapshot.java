@@ -0,0 +1,312 @@
+package editor.api;
+
+import javax.swing.JTextArea;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.Supplier;
+
+/**
+ * An immutable copy of a document's text that any thread may read.
+ * <p>
+ * The text is kept in a balanced tree of small chunks. Editing a snapshot with
+ * {@link #insert} or {@link #delete} builds a new snapshot that shares every chunk
+ * the edit did not touch, so the editor keeps an up-to-date snapshot of each open
+ * document at a cost of O(log n) per keystroke, and handing one out costs nothing.
+ * Background work such as previews, analysis plugins and diffs can then read a
+ * consistent text while the user keeps typing, without copying the document.
+ * <p>
+ * {@link #charAt} walks the tree, but remembers the last chunk it visited, so
+ * scanning the text in order is close to the speed of scanning a {@code String}.
+ * {@link #getChars} and {@link #writeTo} copy whole chunks at a time.
+ */
+public final class TextSnapshot implements CharSequence {
+
+    /**
+     * Document property holding a {@code Supplier<TextSnapshot>} for the document's
+     * current text. Documents without it are copied by {@link #of(Document)}.
+     */
+    public static final String SOURCE_PROPERTY = "editor.snapshot.source";
+
+    /** The snapshot of an empty text. */
+    public static final TextSnapshot EMPTY = new TextSnapshot(Leaf.EMPTY);
+
+    /** Largest chunk; small enough that copying one on every keystroke is cheap. */
+    private static final int MAX_LEAF = 1024;
+
+    private abstract static class Node {
+        final int length;
+        final int height;
+
+        Node(int length, int height) {
+            this.length = length;
+            this.height = height;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        static final Leaf EMPTY = new Leaf("");
+
+        final String text;
+
+        Leaf(String text) {
+            super(text.length(), 0);
+            this.text = text;
+        }
+    }
+
+    private static final class Branch extends Node {
+        final Node left;
+        final Node right;
+
+        Branch(Node left, Node right) {
+            super(left.length + right.length, 1 + Math.max(left.height, right.height));
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /** The chunk that holds [start, start + text.length()), as last found by {@link #charAt}. */
+    private static final class Hit {
+        final int start;
+        final String text;
+
+        Hit(int start, String text) {
+            this.start = start;
+            this.text = text;
+        }
+    }
+
+    private final Node root;
+    /** Shared by all readers; a stale or lost update only costs a tree walk. */
+    private volatile Hit lastHit;
+
+    private TextSnapshot(Node root) {
+        this.root = root;
+    }
+
+    /** A snapshot of the given text. */
+    public static TextSnapshot of(CharSequence text) {
+        if (text instanceof TextSnapshot) return (TextSnapshot) text;
+        return text.length() == 0 ? EMPTY : new TextSnapshot(build(text.toString(), 0, text.length()));
+    }
+
+    /**
+     * The current text of a document. Free for documents created by the editor;
+     * others are copied, which must happen on the EDT.
+     */
+    @SuppressWarnings("unchecked")
+    public static TextSnapshot of(Document document) {
+        Object source = document.getProperty(SOURCE_PROPERTY);
+        if (source instanceof Supplier) return ((Supplier<TextSnapshot>) source).get();
+        try {
+            return of(document.getText(0, document.getLength()));
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** The current text of a text area; see {@link #of(Document)}. */
+    public static TextSnapshot of(JTextArea textArea) {
+        return of(textArea.getDocument());
+    }
+
+    @Override
+    public int length() {
+        return root.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        Hit hit = lastHit;
+        if (hit != null && index >= hit.start && index - hit.start < hit.text.length()) {
+            return hit.text.charAt(index - hit.start);
+        }
+        if (index < 0 || index >= root.length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + root.length);
+        }
+        Node node = root;
+        int start = 0;
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            if (index - start < branch.left.length) {
+                node = branch.left;
+            } else {
+                start += branch.left.length;
+                node = branch.right;
+            }
+        }
+        String text = ((Leaf) node).text;
+        lastHit = new Hit(start, text);
+        return text.charAt(index - start);
+    }
+
+    /** The chars in [start, end) as a snapshot sharing this one's chunks. */
+    @Override
+    public TextSnapshot subSequence(int start, int end) {
+        checkRange(start, end);
+        if (start == 0 && end == root.length) return this;
+        if (start == end) return EMPTY;
+        return new TextSnapshot(slice(root, start, end));
+    }
+
+    /** Copies the chars in [srcBegin, srcEnd) into {@code dst}, like {@link String#getChars}. */
+    public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
+        checkRange(srcBegin, srcEnd);
+        copy(root, srcBegin, srcEnd, dst, dstBegin);
+    }
+
+    /** Writes the whole text, one chunk at a time. */
+    public void writeTo(Writer out) throws IOException {
+        write(root, out);
+    }
+
+    /** The text with {@code text} inserted at {@code offset}. This snapshot is unchanged. */
+    public TextSnapshot insert(int offset, CharSequence text) {
+        checkRange(offset, offset);
+        if (text.length() == 0) return this;
+        return new TextSnapshot(insert(root, offset, text.toString()));
+    }
+
+    /** The text without the chars in [start, end). This snapshot is unchanged. */
+    public TextSnapshot delete(int start, int end) {
+        checkRange(start, end);
+        if (start == end) return this;
+        if (start == 0 && end == root.length) return EMPTY;
+        return new TextSnapshot(delete(root, start, end));
+    }
+
+    /** Copies the whole text into a {@code String}. */
+    @Override
+    public String toString() {
+        if (root instanceof Leaf) return ((Leaf) root).text;
+        char[] chars = new char[root.length];
+        copy(root, 0, root.length, chars, 0);
+        return new String(chars);
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > root.length || start > end) {
+            throw new IndexOutOfBoundsException("range [" + start + ", " + end + "), length " + root.length);
+        }
+    }
+
+    // --- Tree operations. Nodes are never modified; every edit returns a new root. ---
+
+    /** A balanced tree over text[from, to). */
+    private static Node build(String text, int from, int to) {
+        if (to - from <= MAX_LEAF) return new Leaf(text.substring(from, to));
+        int mid = from + (to - from) / 2;
+        return new Branch(build(text, from, mid), build(text, mid, to));
+    }
+
+    private static Node insert(Node node, int offset, String text) {
+        if (node instanceof Leaf) {
+            String old = ((Leaf) node).text;
+            String joined = old.substring(0, offset) + text + old.substring(offset);
+            return build(joined, 0, joined.length());
+        }
+        Branch branch = (Branch) node;
+        if (offset <= branch.left.length) {
+            return join(insert(branch.left, offset, text), branch.right);
+        }
+        return join(branch.left, insert(branch.right, offset - branch.left.length, text));
+    }
+
+    private static Node delete(Node node, int start, int end) {
+        if (start == 0 && end == node.length) return Leaf.EMPTY;
+        if (node instanceof Leaf) {
+            String old = ((Leaf) node).text;
+            return new Leaf(old.substring(0, start) + old.substring(end));
+        }
+        Branch branch = (Branch) node;
+        int split = branch.left.length;
+        if (end <= split) return join(delete(branch.left, start, end), branch.right);
+        if (start >= split) return join(branch.left, delete(branch.right, start - split, end - split));
+        return join(delete(branch.left, start, split), delete(branch.right, 0, end - split));
+    }
+
+    private static Node slice(Node node, int start, int end) {
+        if (start == 0 && end == node.length) return node;
+        if (node instanceof Leaf) return new Leaf(((Leaf) node).text.substring(start, end));
+        Branch branch = (Branch) node;
+        int split = branch.left.length;
+        if (end <= split) return slice(branch.left, start, end);
+        if (start >= split) return slice(branch.right, start - split, end - split);
+        return join(slice(branch.left, start, split), slice(branch.right, 0, end - split));
+    }
+
+    /**
+     * Concatenates two balanced trees into one, in time proportional to the
+     * difference of their heights. Adjacent small chunks are merged.
+     */
+    private static Node join(Node left, Node right) {
+        if (left.length == 0) return right;
+        if (right.length == 0) return left;
+        if (left instanceof Leaf && right instanceof Leaf && left.length + right.length <= MAX_LEAF) {
+            return new Leaf(((Leaf) left).text + ((Leaf) right).text);
+        }
+        if (left.height > right.height + 1) return joinRight((Branch) left, right);
+        if (right.height > left.height + 1) return joinLeft(left, (Branch) right);
+        return new Branch(left, right);
+    }
+
+    /** Joins a shorter tree onto the right spine of a taller one, rebalancing on the way up. */
+    private static Node joinRight(Branch left, Node right) {
+        Node inner = left.right.height > right.height + 1
+                ? joinRight((Branch) left.right, right)
+                : join(left.right, right);
+        if (inner.height <= left.left.height + 1) return new Branch(left.left, inner);
+        // inner is two taller than left.left: rotate, first straightening a left-heavy inner.
+        Branch b = (Branch) inner;
+        if (b.left.height > b.right.height) {
+            Branch bl = (Branch) b.left;
+            return new Branch(new Branch(left.left, bl.left), new Branch(bl.right, b.right));
+        }
+        return new Branch(new Branch(left.left, b.left), b.right);
+    }
+
+    private static Node joinLeft(Node left, Branch right) {
+        Node inner = right.left.height > left.height + 1
+                ? joinLeft(left, (Branch) right.left)
+                : join(left, right.left);
+        if (inner.height <= right.right.height + 1) return new Branch(inner, right.right);
+        Branch b = (Branch) inner;
+        if (b.right.height > b.left.height) {
+            Branch br = (Branch) b.right;
+            return new Branch(new Branch(b.left, br.left), new Branch(br.right, right.right));
+        }
+        return new Branch(b.left, new Branch(b.right, right.right));
+    }
+
+    private static void copy(Node node, int start, int end, char[] dst, int dstBegin) {
+        while (node instanceof Branch) {
+            Branch branch = (Branch) node;
+            int split = branch.left.length;
+            if (end <= split) {
+                node = branch.left;
+            } else if (start >= split) {
+                node = branch.right;
+                start -= split;
+                end -= split;
+            } else {
+                copy(branch.left, start, split, dst, dstBegin);
+                dstBegin += split - start;
+                node = branch.right;
+                start = 0;
+                end -= split;
+            }
+        }
+        ((Leaf) node).text.getChars(start, end, dst, dstBegin);
+    }
+
+    private static void write(Node node, Writer out) throws IOException {
+        if (node instanceof Leaf) {
+            out.write(((Leaf) node).text);
+        } else {
+            write(((Branch) node).left, out);
+            write(((Branch) node).right, out);
+        }
+    }
+}
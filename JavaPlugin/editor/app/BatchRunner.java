@@ -0,0 +1,287 @@
+package editor.app;
+
+import editor.api.BatchPlugin;
+import editor.api.Plugin;
+
+import java.io.*;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs batch-capable plugins over a directory tree without a GUI.
+ * <p>
+ * Files are read and written with NIO and processed concurrently, with at most
+ * {@code --jobs} files in flight so memory stays bounded. Virtual threads are used
+ * when the runtime has them (Java 21+); older runtimes fall back to a fixed pool.
+ * <p>
+ * Run with {@code java -cp . editor.app.BatchRunner [options] <dir>}, or
+ * {@code java -cp . editor.app.Editor --batch [options] <dir>}.
+ */
+public final class BatchRunner {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: editor.app.BatchRunner [options] <directory>",
+            "  -p, --plugin NAME     plugin to apply, by name or class name; repeat to chain, applied in order",
+            "  -g, --glob PATTERN    only process file names matching PATTERN (default: *)",
+            "  -j, --jobs N          files processed at once (default: 2 x CPU cores)",
+            "  -n, --dry-run         report results without writing changed files",
+            "      --plugins-dir DIR where to load plugin JARs from (default: plugins)",
+            "      --list            list plugins that support batch mode and exit");
+
+    private final Path root;
+    private final List<BatchPlugin> plugins;
+    private final PathMatcher matcher;
+    private final int jobs;
+    private final boolean dryRun;
+
+    private final AtomicLong filesDone = new AtomicLong();
+    private final AtomicLong filesChanged = new AtomicLong();
+    private final AtomicLong filesFailed = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private BatchRunner(Path root, List<BatchPlugin> plugins, String glob, int jobs, boolean dryRun) {
+        this.root = root;
+        this.plugins = plugins;
+        this.matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        this.jobs = jobs;
+        this.dryRun = dryRun;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args));
+    }
+
+    /**
+     * Parses the command line and runs the batch.
+     *
+     * @return The process exit code: 0 on success, 1 if any file failed, 2 on bad usage.
+     */
+    static int run(String[] args) {
+        List<String> names = new ArrayList<>();
+        String glob = "*";
+        int jobs = Runtime.getRuntime().availableProcessors() * 2;
+        boolean dryRun = false;
+        boolean list = false;
+        File pluginsDir = PluginLoader.DEFAULT_DIR;
+        String dir = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-p": case "--plugin":      names.add(args[++i]); break;
+                    case "-g": case "--glob":        glob = args[++i]; break;
+                    case "-j": case "--jobs":        jobs = Math.max(1, Integer.parseInt(args[++i])); break;
+                    case "-n": case "--dry-run":     dryRun = true; break;
+                    case "--plugins-dir":            pluginsDir = new File(args[++i]); break;
+                    case "--list":                   list = true; break;
+                    default:
+                        if (args[i].startsWith("-") || dir != null) throw new IllegalArgumentException(args[i]);
+                        dir = args[i];
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        List<BatchPlugin> available = new ArrayList<>();
+        for (Plugin plugin : PluginLoader.load(pluginsDir)) {
+            if (plugin instanceof BatchPlugin) available.add((BatchPlugin) plugin);
+        }
+        if (list) {
+            for (BatchPlugin plugin : available) {
+                System.out.println(plugin.getName() + "  (" + plugin.getClass().getName() + ")");
+            }
+            return 0;
+        }
+        if (dir == null || names.isEmpty()) {
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        List<BatchPlugin> chosen = new ArrayList<>();
+        for (String name : names) {
+            BatchPlugin match = null;
+            for (BatchPlugin plugin : available) {
+                if (plugin.getName().equalsIgnoreCase(name)
+                        || plugin.getClass().getName().equals(name)
+                        || plugin.getClass().getSimpleName().equals(name)) {
+                    match = plugin;
+                    break;
+                }
+            }
+            if (match == null) {
+                System.err.println("No batch-capable plugin named \"" + name + "\" in " + pluginsDir + " (try --list)");
+                return 2;
+            }
+            chosen.add(match);
+        }
+
+        Path root = Paths.get(dir);
+        if (!Files.isDirectory(root)) {
+            System.err.println("Not a directory: " + root);
+            return 2;
+        }
+        return new BatchRunner(root, chosen, glob, jobs, dryRun).execute();
+    }
+
+    private int execute() {
+        ExecutorService executor = newExecutor(jobs);
+        Semaphore inFlight = new Semaphore(jobs);
+        long start = System.nanoTime();
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                    return !d.equals(root) && isHidden(d) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (!attrs.isRegularFile() || isHidden(file) || !matcher.matches(file.getFileName())) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        inFlight.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    executor.execute(() -> {
+                        try {
+                            processFile(file, attrs.size());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Likely one of our own temp files, renamed away after it was listed.
+                    if (isHidden(file)) return FileVisitResult.CONTINUE;
+                    filesFailed.incrementAndGet();
+                    System.out.println(root.relativize(file) + ": FAILED " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error walking " + root + " - " + e.getMessage());
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        double mb = bytesRead.get() / (1024.0 * 1024.0);
+        System.out.printf("%nProcessed %d files (%d changed%s, %d failed), %.1f MB in %.2f s: %.1f files/s, %.1f MB/s%n",
+                filesDone.get(), filesChanged.get(), dryRun ? ", not written" : "", filesFailed.get(),
+                mb, seconds, filesDone.get() / seconds, mb / seconds);
+        return filesFailed.get() == 0 ? 0 : 1;
+    }
+
+    private void processFile(Path file, long size) {
+        Path relative = root.relativize(file);
+        try {
+            String original = read(file, size);
+            String text = original;
+            StringBuilder report = new StringBuilder();
+            for (BatchPlugin plugin : plugins) {
+                BatchPlugin.Result result = plugin.process(text);
+                if (result.getText() != null) text = result.getText();
+                report.append(" [").append(plugin.getName()).append("] ").append(result.getMessage());
+            }
+
+            boolean changed = !text.equals(original);
+            if (changed) {
+                filesChanged.incrementAndGet();
+                if (!dryRun) write(file, text);
+            }
+            filesDone.incrementAndGet();
+            bytesRead.addAndGet(size);
+            System.out.println(relative + (changed ? " (changed):" : ":") + report);
+        } catch (CharacterCodingException e) {
+            System.out.println(relative + ": skipped, not UTF-8 text");
+        } catch (Exception e) {
+            filesFailed.incrementAndGet();
+            System.out.println(relative + ": FAILED " + e);
+        }
+    }
+
+    private static String read(Path file, long size) throws IOException {
+        StringBuilder text = new StringBuilder((int) Math.min(size, Integer.MAX_VALUE - 8));
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            char[] buf = new char[16 * 1024];
+            int n;
+            while ((n = reader.read(buf)) != -1) text.append(buf, 0, n);
+        }
+        return text.toString();
+    }
+
+    /** Writes to a sibling temp file and moves it into place so a failure never truncates the original. */
+    private static void write(Path file, String text) throws IOException {
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), ".batch-", ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(text);
+            }
+            copyPermissions(file, tmp);
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Gives the replacement the original's permissions; temp files are created owner-only.
+     * Set after creation rather than as a creation attribute, which the umask would narrow.
+     * Elsewhere the replacement keeps the directory's defaults.
+     */
+    private static void copyPermissions(Path from, Path to) throws IOException {
+        if (Files.getFileAttributeView(from, PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+        }
+    }
+
+    /**
+     * Hidden files and directories are skipped. That includes the {@code .batch-*.tmp}
+     * files {@link #write} creates next to the files being rewritten while the walk goes on.
+     */
+    private static boolean isHidden(Path path) {
+        Path name = path.getFileName();
+        return name != null && name.toString().startsWith(".");
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "batch-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
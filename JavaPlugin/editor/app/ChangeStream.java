@@ -0,0 +1,317 @@
+package editor.app;
+
+import editor.api.ChangeSubscriber;
+import editor.api.TextSnapshot;
+
+import javax.swing.JTextArea;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes document edits to {@link ChangeSubscriber} plugins.
+ * <p>
+ * On the EDT, each edit is only appended to a per-document list, merged into the previous
+ * change when it continues it, so typing a word or holding backspace yields one change.
+ * The first edit starts a {@code -Deditor.changes.batchMillis} timer (default 50); when it
+ * fires, each edited document's changes become one batch, which is offered to every
+ * subscriber. The inserted text is a slice of the document snapshot, so recording an edit
+ * never copies more than the chunks it touched.
+ * <p>
+ * Every subscriber has a queue of at most {@code -Deditor.changes.queue} batches (default 8)
+ * and is drained by a shared pool of daemon threads, one thread per busy subscriber at a
+ * time. Offering a batch never blocks: when a queue is full, all but the newest queued batch
+ * for each document are dropped, and the ones kept are marked incomplete. If that still
+ * leaves the queue full, because more documents are waiting than it holds, the oldest
+ * batches are dropped too, and the next batch of each of those documents is marked
+ * incomplete. A queue therefore never holds more than its capacity.
+ */
+final class ChangeStream {
+
+    private static final int BATCH_MILLIS = Integer.getInteger("editor.changes.batchMillis", 50);
+    private static final int QUEUE_CAPACITY = Math.max(1, Integer.getInteger("editor.changes.queue", 8));
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ExecutorService DELIVERY = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "plugin-events-" + THREADS.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Delivery counters for one subscriber, as of the moment they were read. */
+    static final class Stats {
+        final int queued;
+        final long delivered;
+        final long dropped;
+        final long failures;
+        /**
+         * How far the subscriber is behind, in steps of the version counter that all tabs
+         * share: the newest published version minus the newest one handled. Approximate
+         * with several tabs; handling a newer batch of one document reports no lag while
+         * an older batch of another is still queued.
+         */
+        final long lagEdits;
+        final long lastDelayMillis;
+        final long maxDelayMillis;
+
+        Stats(int queued, long delivered, long dropped, long failures, long lagEdits,
+              long lastDelayMillis, long maxDelayMillis) {
+            this.queued = queued;
+            this.delivered = delivered;
+            this.dropped = dropped;
+            this.failures = failures;
+            this.lagEdits = lagEdits;
+            this.lastDelayMillis = lastDelayMillis;
+            this.maxDelayMillis = maxDelayMillis;
+        }
+    }
+
+    private static final class Pending {
+        final ChangeSubscriber.Batch batch;
+        final long publishedNanos;
+
+        Pending(ChangeSubscriber.Batch batch, long publishedNanos) {
+            this.batch = batch;
+            this.publishedNanos = publishedNanos;
+        }
+    }
+
+    /** One subscribed plugin. Fields are guarded by the instance lock. */
+    private final class Subscriber {
+        final ChangeSubscriber plugin;
+        final Deque<Pending> queue = new ArrayDeque<>();
+        /** Documents whose next batch must be marked incomplete. */
+        final Set<JTextArea> gaps = Collections.newSetFromMap(new WeakHashMap<>());
+        boolean enabled = true;
+        boolean draining;
+        boolean closed;
+        long delivered;
+        long dropped;
+        long failures;
+        long handledVersion;
+        long lastDelayNanos;
+        long maxDelayNanos;
+
+        Subscriber(ChangeSubscriber plugin) {
+            this.plugin = plugin;
+            this.handledVersion = latestVersion;
+        }
+
+        synchronized void offer(ChangeSubscriber.Batch batch, long now) {
+            JTextArea area = batch.getTextArea();
+            if (closed) return;
+            if (!enabled) {
+                gaps.add(area);
+                return;
+            }
+            if (queue.size() >= QUEUE_CAPACITY) dropToLatest();
+            while (queue.size() >= QUEUE_CAPACITY) {
+                // More documents are waiting than the queue holds: drop the oldest outright.
+                gaps.add(queue.pollFirst().batch.getTextArea());
+                dropped++;
+            }
+            if (gaps.remove(area)) batch = incomplete(batch);
+            queue.addLast(new Pending(batch, now));
+            if (!draining) {
+                draining = true;
+                DELIVERY.execute(this::drain);
+            }
+        }
+
+        /** Keeps only the newest queued batch of each document. */
+        private void dropToLatest() {
+            Deque<Pending> kept = new ArrayDeque<>();
+            Set<JTextArea> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<JTextArea> lossy = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Iterator<Pending> it = queue.descendingIterator(); it.hasNext(); ) {
+                Pending p = it.next();
+                JTextArea area = p.batch.getTextArea();
+                if (seen.add(area)) {
+                    kept.addFirst(p);
+                } else {
+                    lossy.add(area);
+                    dropped++;
+                }
+            }
+            queue.clear();
+            for (Pending p : kept) {
+                queue.addLast(lossy.contains(p.batch.getTextArea())
+                        ? new Pending(incomplete(p.batch), p.publishedNanos) : p);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Pending next;
+                synchronized (this) {
+                    next = closed ? null : queue.pollFirst();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                boolean failed = false;
+                try {
+                    plugin.documentChanged(next.batch);
+                } catch (RuntimeException e) {
+                    failed = true;
+                    System.err.println("Error in plugin " + plugin.getName() + " handling changes - " + e);
+                }
+                long delay = System.nanoTime() - next.publishedNanos;
+                synchronized (this) {
+                    delivered++;
+                    if (failed) failures++;
+                    // Versions are global, but flush offers documents in first-edit order, so a
+                    // batch may carry an older version than one already handled.
+                    handledVersion = Math.max(handledVersion, next.batch.getVersion());
+                    lastDelayNanos = delay;
+                    maxDelayNanos = Math.max(maxDelayNanos, delay);
+                }
+            }
+        }
+
+        synchronized void setEnabled(boolean enabled) {
+            if (this.enabled && !enabled) {
+                for (Pending p : queue) gaps.add(p.batch.getTextArea());
+                dropped += queue.size();
+                queue.clear();
+            }
+            this.enabled = enabled;
+            // Changes made while disabled are skipped, not owed, so they do not count as lag.
+            handledVersion = latestVersion;
+        }
+
+        synchronized void close() {
+            closed = true;
+            queue.clear();
+        }
+
+        synchronized Stats stats() {
+            long lag = enabled ? Math.max(0, latestVersion - handledVersion) : 0;
+            return new Stats(queue.size(), delivered, dropped, failures, lag,
+                    lastDelayNanos / 1_000_000, maxDelayNanos / 1_000_000);
+        }
+    }
+
+    private final Map<DocumentTab, List<ChangeSubscriber.Change>> pending = new LinkedHashMap<>();
+    private final Timer flushTimer = new Timer(BATCH_MILLIS, e -> flush());
+    /** Replaced as a whole, never modified. */
+    private volatile List<Subscriber> subscribers = Collections.emptyList();
+    /** Version of the newest published change. */
+    private volatile long latestVersion;
+
+    ChangeStream() {
+        flushTimer.setRepeats(false);
+    }
+
+    /**
+     * Replaces the subscribers, for example after the plugins were reloaded. Batches still
+     * queued for the previous subscribers are discarded. EDT only.
+     */
+    void setSubscribers(Collection<ChangeSubscriber> plugins) {
+        for (Subscriber s : subscribers) s.close();
+        List<Subscriber> next = new ArrayList<>();
+        for (ChangeSubscriber plugin : plugins) next.add(new Subscriber(plugin));
+        subscribers = Collections.unmodifiableList(next);
+        if (next.isEmpty()) pending.clear();
+    }
+
+    /**
+     * Stops or resumes delivery to a subscriber. Changes made meanwhile are not delivered;
+     * the first batch after resuming is marked incomplete instead.
+     */
+    void setEnabled(ChangeSubscriber plugin, boolean enabled) {
+        Subscriber s = find(plugin);
+        if (s != null) s.setEnabled(enabled);
+    }
+
+    /** @return Delivery counters for a subscriber, or null if it is not subscribed. */
+    Stats getStats(ChangeSubscriber plugin) {
+        Subscriber s = find(plugin);
+        return s == null ? null : s.stats();
+    }
+
+    /**
+     * Records an edit, after the tab's version was advanced. EDT only; costs nothing
+     * while there are no subscribers.
+     */
+    void record(DocumentTab tab, DocumentEvent e) {
+        if (subscribers.isEmpty()) return;
+        boolean insert = e.getType() == DocumentEvent.EventType.INSERT;
+        int offset = e.getOffset();
+        CharSequence inserted = insert ? tab.snapshot().subSequence(offset, offset + e.getLength()) : TextSnapshot.EMPTY;
+        ChangeSubscriber.Change change = new ChangeSubscriber.Change(
+                offset, insert ? 0 : e.getLength(), inserted, tab.getVersion());
+
+        List<ChangeSubscriber.Change> changes = pending.computeIfAbsent(tab, t -> new ArrayList<>());
+        int last = changes.size() - 1;
+        ChangeSubscriber.Change merged = last < 0 ? null : coalesce(changes.get(last), change);
+        if (merged != null) {
+            changes.set(last, merged);
+        } else {
+            changes.add(change);
+        }
+        if (!flushTimer.isRunning()) flushTimer.start();
+    }
+
+    /** Forgets unpublished changes to a tab that is being closed. EDT only. */
+    void discard(DocumentTab tab) {
+        pending.remove(tab);
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) return;
+        long now = System.nanoTime();
+        List<Subscriber> targets = subscribers;
+        for (Map.Entry<DocumentTab, List<ChangeSubscriber.Change>> entry : pending.entrySet()) {
+            DocumentTab tab = entry.getKey();
+            ChangeSubscriber.Batch batch = new ChangeSubscriber.Batch(tab.getTextArea(),
+                    Collections.unmodifiableList(entry.getValue()), tab.snapshot(), true);
+            latestVersion = Math.max(latestVersion, batch.getVersion());
+            for (Subscriber s : targets) s.offer(batch, now);
+        }
+        pending.clear();
+    }
+
+    private Subscriber find(ChangeSubscriber plugin) {
+        for (Subscriber s : subscribers) {
+            if (s.plugin == plugin) return s;
+        }
+        return null;
+    }
+
+    private static ChangeSubscriber.Batch incomplete(ChangeSubscriber.Batch batch) {
+        if (!batch.isComplete()) return batch;
+        return new ChangeSubscriber.Batch(batch.getTextArea(), batch.getChanges(), batch.getSnapshot(), false);
+    }
+
+    /**
+     * Merges {@code next} into {@code previous} when it edits the text {@code previous}
+     * inserted or removes text right next to it.
+     *
+     * @return The combined change, or null if the two cannot be combined.
+     */
+    static ChangeSubscriber.Change coalesce(ChangeSubscriber.Change previous, ChangeSubscriber.Change next) {
+        int start = previous.offset;
+        int end = start + previous.insertedText.length();
+        if (next.offset >= start && next.offset + next.removedLength <= end) {
+            int at = next.offset - start;
+            TextSnapshot text = TextSnapshot.of(previous.insertedText)
+                    .delete(at, at + next.removedLength)
+                    .insert(at, next.insertedText);
+            return new ChangeSubscriber.Change(start, previous.removedLength, text, next.version);
+        }
+        if (next.insertedText.length() == 0 && next.offset + next.removedLength == start) {
+            return new ChangeSubscriber.Change(next.offset, next.removedLength + previous.removedLength,
+                    previous.insertedText, next.version);
+        }
+        if (next.insertedText.length() == 0 && next.offset == end) {
+            return new ChangeSubscriber.Change(start, previous.removedLength + next.removedLength,
+                    previous.insertedText, next.version);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,255 @@
+package editor.app;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Side-by-side view of a {@link LineDiff}, with the old text on the left and the new
+ * text on the right.
+ * <p>
+ * Rows are computed on demand from the hunk list and only visible rows are painted, so
+ * the view costs the same for a ten-line file as for a million-line one. The diff itself
+ * runs on a background worker and stops when the panel is cancelled.
+ */
+class DiffPanel extends JPanel {
+
+    private static final Color BACKGROUND = new Color(45, 45, 45);
+    private static final Color FOREGROUND = new Color(220, 220, 220);
+    private static final Color GUTTER = new Color(130, 130, 130);
+    private static final Color REMOVED = new Color(95, 45, 45);
+    private static final Color ADDED = new Color(45, 85, 50);
+    private static final Color FILLER = new Color(58, 58, 58);
+    private static final Color SELECTED = new Color(70, 90, 120);
+
+    private final JLabel statusLabel = new JLabel("Comparing...");
+    private final JButton previousButton = new JButton("Previous Change");
+    private final JButton nextButton = new JButton("Next Change");
+    private final JButton cancelButton = new JButton("Cancel");
+    private final JList<Integer> rowList = new JList<>();
+
+    // Set by the worker; read on the EDT by cancel() and, after done(), by the renderer.
+    private volatile LineDiff diff;
+    private SwingWorker<List<LineDiff.Hunk>, Void> worker;
+    private volatile LineDiff.Lines left;
+    private volatile LineDiff.Lines right;
+    private List<LineDiff.Hunk> hunks = Collections.emptyList();
+    /** First row of each hunk. */
+    private int[] hunkRows = new int[0];
+    private int rowCount;
+
+    DiffPanel(String leftTitle, String rightTitle) {
+        super(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+
+        JPanel titles = new JPanel(new GridLayout(1, 2, 5, 0));
+        titles.add(new JLabel(leftTitle));
+        titles.add(new JLabel(rightTitle));
+        add(titles, BorderLayout.NORTH);
+
+        rowList.setBackground(BACKGROUND);
+        rowList.setFont(new Font("Consolas", Font.PLAIN, 13));
+        rowList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        // Fixed cell sizes stop the list from measuring every row; cells still span the viewport.
+        rowList.setFixedCellHeight(rowList.getFontMetrics(rowList.getFont()).getHeight() + 2);
+        rowList.setFixedCellWidth(100);
+        rowList.setCellRenderer(new RowRenderer());
+        add(new JScrollPane(rowList), BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttons.add(previousButton);
+        buttons.add(nextButton);
+        buttons.add(cancelButton);
+        JPanel south = new JPanel(new BorderLayout());
+        south.add(statusLabel, BorderLayout.CENTER);
+        south.add(buttons, BorderLayout.EAST);
+        add(south, BorderLayout.SOUTH);
+
+        previousButton.addActionListener(e -> jumpToHunk(-1));
+        nextButton.addActionListener(e -> jumpToHunk(1));
+        cancelButton.addActionListener(e -> cancel());
+        previousButton.setEnabled(false);
+        nextButton.setEnabled(false);
+    }
+
+    /**
+     * Starts comparing in the background. Both suppliers run on the worker thread, so
+     * they may read files but must not touch Swing.
+     */
+    void compare(Callable<? extends CharSequence> oldText, Callable<? extends CharSequence> newText) {
+        long startNanos = System.nanoTime();
+        worker = new SwingWorker<List<LineDiff.Hunk>, Void>() {
+            @Override protected List<LineDiff.Hunk> doInBackground() throws Exception {
+                LineDiff.Lines a = new LineDiff.Lines(oldText.call());
+                LineDiff.Lines b = new LineDiff.Lines(newText.call());
+                left = a;
+                right = b;
+                LineDiff running = new LineDiff(a, b);
+                diff = running;
+                // Checked after publishing diff, so a cancel() that missed it is seen here.
+                if (isCancelled()) throw new CancellationException();
+                return running.compute();
+            }
+
+            @Override protected void done() {
+                cancelButton.setEnabled(false);
+                try {
+                    showResult(get(), (System.nanoTime() - startNanos) / 1_000_000);
+                } catch (CancellationException e) {
+                    statusLabel.setText("Cancelled.");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    statusLabel.setText(cause instanceof CancellationException ? "Cancelled."
+                            : "Error comparing - " + cause.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /** Stops a running comparison. Safe to call when none is running. */
+    void cancel() {
+        if (worker != null) worker.cancel(false);
+        LineDiff running = diff;
+        if (running != null) running.cancel();
+    }
+
+    private void showResult(List<LineDiff.Hunk> result, long millis) {
+        hunks = result;
+        hunkRows = new int[hunks.size()];
+        int row = 0;
+        int line = 0;
+        int removed = 0;
+        int added = 0;
+        for (int i = 0; i < hunks.size(); i++) {
+            LineDiff.Hunk hunk = hunks.get(i);
+            row += hunk.aStart - line;
+            hunkRows[i] = row;
+            row += Math.max(hunk.aCount, hunk.bCount);
+            line = hunk.aStart + hunk.aCount;
+            removed += hunk.aCount;
+            added += hunk.bCount;
+        }
+        rowCount = row + left.size() - line;
+
+        rowList.setModel(new AbstractListModel<Integer>() {
+            @Override public int getSize() { return rowCount; }
+            @Override public Integer getElementAt(int index) { return index; }
+        });
+        statusLabel.setText(hunks.isEmpty()
+                ? String.format("No differences (%d lines, %d ms).", left.size(), millis)
+                : String.format("%d changes: %d lines removed, %d added (%d ms).", hunks.size(), removed, added, millis));
+        previousButton.setEnabled(!hunks.isEmpty());
+        nextButton.setEnabled(!hunks.isEmpty());
+        if (!hunks.isEmpty()) jumpToHunk(1);
+    }
+
+    private void jumpToHunk(int direction) {
+        if (hunkRows.length == 0) return;
+        int current = rowList.getSelectedIndex();
+        int target = -1;
+        if (direction > 0) {
+            for (int row : hunkRows) {
+                if (row > current) { target = row; break; }
+            }
+            if (target < 0) target = hunkRows[0];
+        } else {
+            for (int i = hunkRows.length - 1; i >= 0; i--) {
+                if (hunkRows[i] < current) { target = hunkRows[i]; break; }
+            }
+            if (target < 0) target = hunkRows[hunkRows.length - 1];
+        }
+        rowList.setSelectedIndex(target);
+        rowList.ensureIndexIsVisible(Math.min(rowCount - 1, target + 10));
+        rowList.ensureIndexIsVisible(target);
+    }
+
+    /** Index of the last hunk starting at or before {@code row}, or -1. */
+    private int hunkAt(int row) {
+        int lo = 0;
+        int hi = hunkRows.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (hunkRows[mid] <= row) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /** Paints one row: the old line on the left and the new line on the right. */
+    private final class RowRenderer extends JComponent implements ListCellRenderer<Integer> {
+        private int leftLine;
+        private int rightLine;
+        private boolean changed;
+        private boolean selected;
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Integer> list, Integer row,
+                                                      int index, boolean isSelected, boolean cellHasFocus) {
+            selected = isSelected;
+            int h = hunkAt(row);
+            if (h < 0) {
+                leftLine = row;
+                rightLine = row;
+                changed = false;
+            } else {
+                LineDiff.Hunk hunk = hunks.get(h);
+                int offset = row - hunkRows[h];
+                changed = offset < Math.max(hunk.aCount, hunk.bCount);
+                if (changed) {
+                    leftLine = offset < hunk.aCount ? hunk.aStart + offset : -1;
+                    rightLine = offset < hunk.bCount ? hunk.bStart + offset : -1;
+                } else {
+                    offset -= Math.max(hunk.aCount, hunk.bCount);
+                    leftLine = hunk.aStart + hunk.aCount + offset;
+                    rightLine = hunk.bStart + hunk.bCount + offset;
+                }
+            }
+            setFont(list.getFont());
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            int half = getWidth() / 2;
+            paintSide(g, 0, half, left, leftLine, REMOVED);
+            paintSide(g, half, getWidth() - half, right, rightLine, ADDED);
+            g.setColor(GUTTER);
+            g.drawLine(half, 0, half, getHeight());
+        }
+
+        private void paintSide(Graphics g, int x, int width, LineDiff.Lines lines, int line, Color changedColor) {
+            Color background = line < 0 ? FILLER : changed ? changedColor : BACKGROUND;
+            g.setColor(selected ? SELECTED : background);
+            g.fillRect(x, 0, width, getHeight());
+            if (line < 0) return;
+
+            FontMetrics metrics = g.getFontMetrics(getFont());
+            int baseline = (getHeight() + metrics.getAscent() - metrics.getDescent()) / 2;
+            int gutterWidth = metrics.stringWidth("0000000 ");
+            g.setFont(getFont());
+            g.setColor(GUTTER);
+            String number = String.valueOf(line + 1);
+            g.drawString(number, x + gutterWidth - metrics.stringWidth(number + " "), baseline);
+
+            // Only as much of the line as can be seen is copied out of the text.
+            int maxChars = Math.max(0, (width - gutterWidth) / Math.max(1, metrics.charWidth('m')) + 1);
+            String text = lines.get(line, maxChars);
+            g.setColor(FOREGROUND);
+            Graphics clipped = g.create(x + gutterWidth, 0, width - gutterWidth, getHeight());
+            clipped.drawString(text.replace("\t", "    "), 0, baseline);
+            clipped.dispose();
+        }
+    }
+}
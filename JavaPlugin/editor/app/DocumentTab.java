@@ -0,0 +1,268 @@
+package editor.app;
+
+import editor.api.TextSnapshot;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.*;
+import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * One open document in the editor: its text area, backing file and residency state.
+ * <p>
+ * An inactive tab may have its text moved out of the Swing document, either into a
+ * compressed byte array or into a temp file. While released, the text area holds an
+ * empty placeholder document; {@link #rehydrate()} puts the text back.
+ * <p>
+ * Every change to the text gives the tab a new version number. Versions come from one
+ * counter shared by all tabs, so a version never repeats and identifies one state of
+ * one document.
+ */
+class DocumentTab {
+
+    enum Residency { RESIDENT, COMPRESSED, SPILLED }
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /** Rough per-line cost of the element and position objects a PlainDocument keeps. */
+    private static final int LINE_OVERHEAD_BYTES = 96;
+
+    private final JTextArea textArea;
+    private final JScrollPane scrollPane;
+    private final String untitledName;
+    private final UndoHistory undoHistory = new UndoHistory();
+    private File file;
+    private EditJournal journal;
+    /** The file's line separator, restored by textArea.write; null for the platform's. */
+    private String lineSeparator;
+
+    private volatile Residency residency = Residency.RESIDENT;
+    private byte[] compressed;
+    private Path spillFile;
+    private int releasedLength;
+    private int releasedLines;
+    private int caretPosition;
+
+    private volatile long version = VERSIONS.incrementAndGet();
+    private ChangeStream changeStream;
+
+    DocumentTab(File file, String untitledName) {
+        this.file = file;
+        this.untitledName = untitledName;
+
+        textArea = new JTextArea(createDocument());
+        textArea.setFont(new Font("Consolas", Font.PLAIN, 14));
+        textArea.setBackground(new Color(45, 45, 45));
+        textArea.setForeground(new Color(220, 220, 220));
+        textArea.setCaretColor(Color.WHITE);
+        textArea.setLineWrap(true);
+        textArea.setWrapStyleWord(true);
+        textArea.setTabSize(4);
+
+        DocumentListener versionCounter = new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { changed(e); }
+            @Override public void removeUpdate(DocumentEvent e) { changed(e); }
+            @Override public void changedUpdate(DocumentEvent e) {}
+        };
+        undoHistory.install(textArea.getDocument());
+        textArea.getDocument().addDocumentListener(versionCounter);
+        textArea.addPropertyChangeListener("document", e -> {
+            if (e.getOldValue() != null) ((Document) e.getOldValue()).removeDocumentListener(versionCounter);
+            ((Document) e.getNewValue()).addDocumentListener(versionCounter);
+            undoHistory.install((Document) e.getNewValue());
+        });
+
+        scrollPane = new JScrollPane(textArea);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+    }
+
+    /** A document whose text can be snapshotted for free; see {@link TextSnapshot#of(Document)}. */
+    static Document createDocument() {
+        SnapshotContent content = new SnapshotContent();
+        PlainDocument doc = new PlainDocument(content);
+        doc.putProperty(TextSnapshot.SOURCE_PROPERTY, (Supplier<TextSnapshot>) content::snapshot);
+        return doc;
+    }
+
+    private static Document createDocument(String lineSeparator) {
+        Document doc = createDocument();
+        if (lineSeparator != null) doc.putProperty(DefaultEditorKit.EndOfLineStringProperty, lineSeparator);
+        return doc;
+    }
+
+    /** The current text, safe to read from any thread while editing goes on. */
+    TextSnapshot snapshot() {
+        return TextSnapshot.of(textArea.getDocument());
+    }
+
+    JTextArea getTextArea() { return textArea; }
+
+    JScrollPane getScrollPane() { return scrollPane; }
+
+    UndoHistory getUndoHistory() { return undoHistory; }
+
+    /** The crash-recovery journal for this tab, or null if it could not be created. */
+    EditJournal getJournal() { return journal; }
+
+    void setJournal(EditJournal journal) { this.journal = journal; }
+
+    /**
+     * Sets the line separator written on save, as {@link DefaultEditorKit#read} would
+     * have found it. Kept across compression and rehydration.
+     */
+    void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+        textArea.getDocument().putProperty(DefaultEditorKit.EndOfLineStringProperty, lineSeparator);
+    }
+
+    /** Publishes this tab's edits to plugins; null to stop. */
+    void setChangeStream(ChangeStream changeStream) { this.changeStream = changeStream; }
+
+    private void changed(DocumentEvent e) {
+        version = VERSIONS.incrementAndGet();
+        if (changeStream != null) changeStream.record(this, e);
+    }
+
+    /** The version of the text; it increases with every change. Any thread. */
+    long getVersion() { return version; }
+
+    File getFile() { return file; }
+
+    void setFile(File file) { this.file = file; }
+
+    String getDisplayName() {
+        return file != null ? file.getName() : untitledName;
+    }
+
+    Residency getResidency() { return residency; }
+
+    /**
+     * Estimated heap held by this tab's text in its current residency.
+     */
+    long estimateHeapBytes() {
+        switch (residency) {
+            case COMPRESSED: return compressed.length;
+            case SPILLED:    return 0;
+            default:
+                Document doc = textArea.getDocument();
+                // The gap buffer plus the snapshot's chunks, which hold Latin-1 text in one byte a char.
+                return (long) doc.getLength() * 3
+                        + (long) doc.getDefaultRootElement().getElementCount() * LINE_OVERHEAD_BYTES;
+        }
+    }
+
+    /**
+     * Compresses the resident text into memory and swaps in an empty document.
+     * Must be called on the EDT.
+     */
+    void compress() throws IOException {
+        if (residency != Residency.RESIDENT) return;
+        Document doc = textArea.getDocument();
+        TextSnapshot text = snapshot();
+        releasedLines = doc.getDefaultRootElement().getElementCount();
+        releasedLength = text.length();
+        caretPosition = textArea.getCaretPosition();
+        compressed = deflate(text);
+        residency = Residency.COMPRESSED;
+        textArea.setDocument(createDocument(lineSeparator));
+    }
+
+    /**
+     * Moves already-compressed text out to a temp file. Must be called on the EDT.
+     */
+    void spill() throws IOException {
+        if (residency != Residency.COMPRESSED) return;
+        Path path = Files.createTempFile("editor-tab-", ".spill");
+        path.toFile().deleteOnExit();
+        Files.write(path, compressed);
+        spillFile = path;
+        compressed = null;
+        residency = Residency.SPILLED;
+    }
+
+    /**
+     * Restores the released text into a fresh document. Must be called on the EDT.
+     */
+    void rehydrate() throws IOException {
+        if (residency == Residency.RESIDENT) return;
+        String text = readText().toString();
+        Document doc = createDocument(lineSeparator);
+        try {
+            doc.insertString(0, text, null);
+        } catch (BadLocationException e) {
+            throw new IOException(e);
+        }
+        textArea.setDocument(doc);
+        textArea.setCaretPosition(Math.min(caretPosition, doc.getLength()));
+        discardReleased();
+        residency = Residency.RESIDENT;
+    }
+
+    /**
+     * Returns the tab's text whatever its residency, without rehydrating it. A resident
+     * tab returns its current snapshot, which is not copied.
+     */
+    CharSequence readText() throws IOException {
+        switch (residency) {
+            case COMPRESSED: return inflate(compressed, releasedLength);
+            case SPILLED:    return inflate(Files.readAllBytes(spillFile), releasedLength);
+            default:         return snapshot();
+        }
+    }
+
+    /** Character count of the document, valid in every residency. */
+    int getLength() {
+        return residency == Residency.RESIDENT ? textArea.getDocument().getLength() : releasedLength;
+    }
+
+    /** Line count of the document, valid in every residency. */
+    int getLineCount() {
+        return residency == Residency.RESIDENT ? textArea.getLineCount() : releasedLines;
+    }
+
+    /** Frees any compressed copy or spill file and deletes the journal. */
+    void dispose() {
+        discardReleased();
+        if (journal != null) journal.close();
+    }
+
+    private void discardReleased() {
+        compressed = null;
+        if (spillFile != null) {
+            try { Files.deleteIfExists(spillFile); } catch (IOException ignored) {}
+            spillFile = null;
+        }
+    }
+
+    private static byte[] deflate(TextSnapshot text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, text.length() / 4));
+        // Favour speed: this runs on the EDT when the user switches tabs.
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (Writer out = new OutputStreamWriter(new DeflaterOutputStream(bytes, deflater), StandardCharsets.UTF_8)) {
+            text.writeTo(out);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String inflate(byte[] data, int length) throws IOException {
+        try (Reader in = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(data)), StandardCharsets.UTF_8)) {
+            StringBuilder text = new StringBuilder(length);
+            char[] buf = new char[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) text.append(buf, 0, n);
+            return text.toString();
+        }
+    }
+}
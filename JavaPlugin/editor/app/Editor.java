@@ -1,32 +1,57 @@
 package editor.app;
 
+import editor.api.CacheablePlugin;
+import editor.api.ChangeSubscriber;
 import editor.api.Plugin;
+import editor.api.TextSnapshot;
 import javax.swing.*;
 import javax.swing.event.*;
 import javax.swing.text.*;
-import javax.swing.undo.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.*;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Editor extends JFrame {
     // ... [All existing fields preserved]
-    private JTextArea textArea;
-    private JEditorPane previewPane;
-    private JFileChooser fileChooser;
+    private JTextArea textArea; // text area of the selected tab
+    private JTabbedPane tabbedPane;
+    private final java.util.List<DocumentTab> tabs = new ArrayList<>();
+    private final TabMemoryManager tabMemory = new TabMemoryManager();
+    private int untitledCount;
+    private JEditorPane previewPane; // created on first use, see ensurePreviewPane()
+    private JScrollPane previewScrollPane;
+    private boolean previewReady;
+    // A multi-range edit fires many document events; each refresh is queued only once.
+    private boolean previewPending;
+    private boolean statusPending;
+    // Status and preview are worked out from a snapshot off the EDT; only the newest request runs.
+    private final ExecutorService snapshotReader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "snapshot-reader");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile int statusRequest;
+    private volatile int previewRequest;
+    private static final Pattern WORD = Pattern.compile("\\S+");
+    private static final Pattern MARKDOWN_HINT = Pattern.compile("# |\\*\\*|\\* |- |```");
+    private JFileChooser fileChooser; // created on first use, see fileChooser()
     private JLabel statusBar;
+    private JLabel hudLabel;
+    private javax.swing.Timer hudTimer;
+    private EdtMonitor edtMonitor;
     private JMenu pluginsMenu;
     private final Map<Plugin, Boolean> pluginStates = new LinkedHashMap<>();
-    private File currentFile;
-    private UndoManager undoManager = new UndoManager();
+    private final PluginResultCache pluginCache = new PluginResultCache();
+    private final ChangeStream changeStream = new ChangeStream();
     private JSplitPane splitPane;
+    private JDialog findInFilesDialog;
+    private FindInFilesPanel findInFilesPanel;
     private boolean isPreviewVisible = true;
 
     public Editor() {
@@ -36,36 +61,24 @@ public class Editor extends JFrame {
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
+        long phase = StartupTimeline.begin();
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception ignored) {}
+        StartupTimeline.end("look and feel", phase);
 
-        // --- Text Area (preserved) ---
-        textArea = new JTextArea();
-        textArea.setFont(new Font("Consolas", Font.PLAIN, 14));
-        textArea.setBackground(new Color(45, 45, 45));
-        textArea.setForeground(new Color(220, 220, 220));
-        textArea.setCaretColor(Color.WHITE);
-        textArea.setLineWrap(true);
-        textArea.setWrapStyleWord(true);
-        textArea.setTabSize(4);
-
-        // --- NEW: Preview Pane ---
-        previewPane = new JEditorPane();
-        previewPane.setContentType("text/html");
-        previewPane.setEditable(false);
-        previewPane.setBackground(new Color(240, 240, 240));
-        previewPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        // --- Document Tabs ---
+        phase = StartupTimeline.begin();
+        tabbedPane = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+        tabbedPane.addChangeListener(e -> onTabSelected());
 
         // --- Scroll Panes (preserved) ---
-        JScrollPane textScrollPane = new JScrollPane(textArea);
-        textScrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        
-        JScrollPane previewScrollPane = new JScrollPane(previewPane);
+        // The preview pane itself is built after the first paint; its HTML kit is slow to load.
+        previewScrollPane = new JScrollPane();
         previewScrollPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // --- NEW: Split Pane ---
-        splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, textScrollPane, previewScrollPane);
+        splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, tabbedPane, previewScrollPane);
         splitPane.setDividerLocation(600);
         splitPane.setResizeWeight(0.5);
         add(splitPane, BorderLayout.CENTER);
@@ -77,26 +90,71 @@ public class Editor extends JFrame {
         statusBar.setForeground(Color.WHITE);
         statusBar.setHorizontalAlignment(SwingConstants.LEFT);
         statusBar.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
-        add(statusBar, BorderLayout.SOUTH);
-
-        // --- Document Listeners (preserved + new preview update) ---
-        textArea.getDocument().addDocumentListener(new DocumentListener() {
-            @Override public void insertUpdate(DocumentEvent e) { updatePreview(); updateStatus(); }
-            @Override public void removeUpdate(DocumentEvent e) { updatePreview(); updateStatus(); }
-            @Override public void changedUpdate(DocumentEvent e) { updatePreview(); updateStatus(); }
-        });
-
-        textArea.getDocument().addUndoableEditListener(e -> undoManager.addEdit(e.getEdit()));
-        addUndoRedoKeyBindings();
-
-        fileChooser = new JFileChooser();
 
+        // --- Performance HUD (hidden until enabled from the View menu) ---
+        edtMonitor = EdtMonitor.install();
+        hudLabel = new JLabel();
+        hudLabel.setOpaque(true);
+        hudLabel.setBackground(new Color(60, 60, 60));
+        hudLabel.setForeground(new Color(150, 220, 150));
+        hudLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        hudLabel.setToolTipText("EDT stalls over " + edtMonitor.getStallThresholdMillis() + " ms are logged to " + EdtMonitor.LOG_FILE);
+        hudLabel.setVisible(false);
+        hudTimer = new javax.swing.Timer(1000, e -> hudLabel.setText(edtMonitor.hudText()));
+
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusBar, BorderLayout.CENTER);
+        statusPanel.add(hudLabel, BorderLayout.EAST);
+        add(statusPanel, BorderLayout.SOUTH);
+        StartupTimeline.end("components", phase);
+
+        phase = StartupTimeline.begin();
         setupToolBar();
         setupMenuBar(); // Updated to include View menu
+        StartupTimeline.end("toolbar and menus", phase);
+
+        // Plugin JARs are scanned in the background; their menu fills in when ready.
         loadPlugins();
-        
-        // Initial preview update
-        updatePreview();
+
+        phase = StartupTimeline.begin();
+        addTab(null, "");
+        StartupTimeline.end("first tab", phase);
+
+        addWindowListener(new WindowAdapter() {
+            @Override public void windowOpened(WindowEvent e) {
+                StartupTimeline.milestone("window opened");
+                // Deferred work runs once the first frame is on screen.
+                SwingUtilities.invokeLater(() -> {
+                    previewReady = true;
+                    updatePreview();
+                    recoverUnsavedEdits();
+                });
+            }
+            @Override public void windowClosing(WindowEvent e) { EditJournal.closeAll(); }
+        });
+        watchFirstKeystroke();
+    }
+
+    // --- Startup ---
+    private void watchFirstKeystroke() {
+        Toolkit toolkit = Toolkit.getDefaultToolkit();
+        AWTEventListener[] listener = new AWTEventListener[1];
+        listener[0] = event -> {
+            if (event.getID() != KeyEvent.KEY_TYPED) return;
+            toolkit.removeAWTEventListener(listener[0]);
+            StartupTimeline.milestone("first keystroke");
+            if (StartupTimeline.TRACE) System.err.print("Startup timeline:\n" + StartupTimeline.report());
+        };
+        toolkit.addAWTEventListener(listener[0], AWTEvent.KEY_EVENT_MASK);
+    }
+
+    private JFileChooser fileChooser() {
+        if (fileChooser == null) {
+            long phase = StartupTimeline.begin();
+            fileChooser = new JFileChooser();
+            StartupTimeline.end("file chooser (lazy)", phase);
+        }
+        return fileChooser;
     }
 
     // --- Toolbar (preserved) ---
@@ -138,9 +196,13 @@ public class Editor extends JFrame {
         addMenuItem(fileMenu, "New", "Create a new file", e -> newFile());
         addMenuItem(fileMenu, "Open", "Open a text file", e -> openFile());
         addMenuItem(fileMenu, "Save", "Save the current file", e -> saveFile());
+        addMenuItem(fileMenu, "Close Tab", "Close the current document", e -> closeTab());
         addMenuItem(fileMenu, "Find and Replace", "Find and replace text", e -> findAndReplaceText());
+        addMenuItem(fileMenu, "Find in Files", "Search all files under a directory", e -> findInFiles());
+        addMenuItem(fileMenu, "Compare with Saved", "Show changes since the file was last saved", e -> compareWithSaved());
+        addMenuItem(fileMenu, "Compare with Open File...", "Show differences from another open document", e -> compareWithTab());
         fileMenu.addSeparator();
-        addMenuItem(fileMenu, "Exit", "Exit the application", e -> System.exit(0));
+        addMenuItem(fileMenu, "Exit", "Exit the application", e -> exitEditor());
         menuBar.add(fileMenu);
 
         // NEW: View menu with preview toggle
@@ -148,6 +210,27 @@ public class Editor extends JFrame {
         JCheckBoxMenuItem previewItem = new JCheckBoxMenuItem("Show Preview", true);
         previewItem.addActionListener(e -> togglePreview(previewItem.isSelected()));
         viewMenu.add(previewItem);
+        JCheckBoxMenuItem hudItem = new JCheckBoxMenuItem("Performance HUD", false);
+        hudItem.addActionListener(e -> togglePerformanceHud(hudItem.isSelected()));
+        viewMenu.add(hudItem);
+        JMenuItem startupItem = new JMenuItem("Startup Timeline...");
+        startupItem.addActionListener(e -> {
+            JTextArea report = new JTextArea(StartupTimeline.report());
+            report.setFont(new Font("Consolas", Font.PLAIN, 12));
+            report.setEditable(false);
+            JOptionPane.showMessageDialog(this, new JScrollPane(report), "Startup Timeline", JOptionPane.INFORMATION_MESSAGE);
+        });
+        viewMenu.add(startupItem);
+        JMenuItem tabMemoryItem = new JMenuItem("Tab Memory...");
+        tabMemoryItem.addActionListener(e -> showTabMemory());
+        viewMenu.add(tabMemoryItem);
+        JMenuItem undoMemoryItem = new JMenuItem("Undo Memory...");
+        undoMemoryItem.addActionListener(e -> showUndoMemory());
+        viewMenu.add(undoMemoryItem);
+        JMenuItem journalItem = new JMenuItem("Journal Stats...");
+        journalItem.addActionListener(e -> JOptionPane.showMessageDialog(this, EditJournal.statsReport(),
+                "Edit Journal", JOptionPane.INFORMATION_MESSAGE));
+        viewMenu.add(journalItem);
         menuBar.add(viewMenu);
 
         // Plugins menu (preserved)
@@ -157,20 +240,126 @@ public class Editor extends JFrame {
         setJMenuBar(menuBar);
     }
 
+    private void addMenuItem(JMenu menu, String text, String tooltip, ActionListener action) {
+        JMenuItem item = new JMenuItem(text);
+        item.setToolTipText(tooltip);
+        item.addActionListener(action);
+        menu.add(item);
+    }
+
     // --- Status Bar Update (preserved + updated) ---
     private void updateStatus() {
+        if (statusPending) return;
+        statusPending = true;
         SwingUtilities.invokeLater(() -> {
-            String text = textArea.getText();
+            statusPending = false;
+            TextSnapshot text = TextSnapshot.of(textArea);
             int lines = textArea.getLineCount();
-            int words = text.trim().isEmpty() ? 0 : text.trim().split("\\s+").length;
-            int chars = text.length();
-            statusBar.setText(String.format(" Lines: %d | Words: %d | Chars: %d | Preview: %s ", 
-                lines, words, chars, isPreviewVisible ? "ON" : "OFF"));
+            int request = ++statusRequest;
+            snapshotReader.execute(() -> {
+                if (request != statusRequest) return;
+                int words = 0;
+                Matcher word = WORD.matcher(text);
+                while (word.find()) words++;
+                int wordCount = words;
+                SwingUtilities.invokeLater(() -> {
+                    if (request != statusRequest) return;
+                    statusBar.setText(String.format(" Lines: %d | Words: %d | Chars: %d | Preview: %s ", 
+                        lines, wordCount, text.length(), isPreviewVisible ? "ON" : "OFF"));
+                });
+            });
+        });
+    }
+
+    // --- Document Tabs ---
+    private DocumentTab activeTab() {
+        int index = tabbedPane.getSelectedIndex();
+        return index < 0 ? null : tabs.get(index);
+    }
+
+    private DocumentTab addTab(File file, String text) {
+        DocumentTab tab = new DocumentTab(file, "Untitled " + (++untitledCount));
+        JTextArea area = tab.getTextArea();
+        area.setText(text);
+        area.setCaretPosition(0);
+        tab.getUndoHistory().discardAllEdits();
+        // Subscribed after loading, so plugins only see the user's edits.
+        tab.setChangeStream(changeStream);
+
+        // The document is replaced whenever the tab is released and rehydrated,
+        // so listeners are attached per document rather than once per text area.
+        DocumentListener listener = new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { updatePreview(); updateStatus(); }
+            @Override public void removeUpdate(DocumentEvent e) { updatePreview(); updateStatus(); }
+            @Override public void changedUpdate(DocumentEvent e) { updatePreview(); updateStatus(); }
+        };
+        java.util.List<DocumentListener> listeners = new ArrayList<>();
+        listeners.add(listener);
+        try {
+            tab.setJournal(EditJournal.create(file));
+            listeners.add(tab.getJournal());
+        } catch (IOException e) {
+            System.err.println("Error creating edit journal for " + tab.getDisplayName() + " - " + e.getMessage());
+        }
+        for (DocumentListener l : listeners) area.getDocument().addDocumentListener(l);
+        area.addPropertyChangeListener("document", e -> {
+            Document oldDoc = (Document) e.getOldValue();
+            Document newDoc = (Document) e.getNewValue();
+            for (DocumentListener l : listeners) {
+                if (oldDoc != null) oldDoc.removeDocumentListener(l);
+                newDoc.addDocumentListener(l);
+            }
         });
+        addUndoRedoKeyBindings(area);
+
+        tabs.add(tab);
+        tabMemory.add(tab);
+        tabbedPane.addTab(tab.getDisplayName(), tab.getScrollPane());
+        tabbedPane.setSelectedIndex(tabs.size() - 1);
+        return tab;
+    }
+
+    private void closeTab() {
+        DocumentTab tab = activeTab();
+        if (tab == null) return;
+        int index = tabs.indexOf(tab);
+        tabs.remove(index);
+        tabMemory.remove(tab);
+        tab.setChangeStream(null);
+        changeStream.discard(tab);
+        tabbedPane.removeTabAt(index);
+        if (tabs.isEmpty()) addTab(null, "");
+    }
+
+    private void onTabSelected() {
+        DocumentTab tab = activeTab();
+        if (tab == null) return;
+        try {
+            tabMemory.activate(tab);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error restoring document: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        textArea = tab.getTextArea();
+        setTitle("Modern Plugin Text Editor - " + tab.getDisplayName());
+        updatePreview();
+        updateStatus();
+    }
+
+    private void showTabMemory() {
+        StringBuilder report = new StringBuilder();
+        DocumentTab active = activeTab();
+        for (DocumentTab tab : tabs) {
+            report.append(String.format("%s%s: %s, %d chars, ~%d KB%n",
+                    tab.getDisplayName(), tab == active ? " (active)" : "",
+                    tab.getResidency(), tab.getLength(), tab.estimateHeapBytes() / 1024));
+        }
+        report.append(String.format("%nInactive tabs: ~%d KB of %d KB budget",
+                tabMemory.inactiveHeapBytes(active) / 1024, tabMemory.getBudgetBytes() / 1024));
+        JOptionPane.showMessageDialog(this, report.toString(), "Tab Memory", JOptionPane.INFORMATION_MESSAGE);
     }
 
     // --- Undo/Redo (preserved) ---
-    private void addUndoRedoKeyBindings() {
+    private void addUndoRedoKeyBindings(JTextArea textArea) {
         textArea.getInputMap().put(KeyStroke.getKeyStroke("control Z"), "Undo");
         textArea.getActionMap().put("Undo", new AbstractAction() {
             public void actionPerformed(java.awt.event.ActionEvent e) { undoAction(); }
@@ -183,50 +372,119 @@ public class Editor extends JFrame {
     }
 
     private void undoAction() {
-        try { if (undoManager.canUndo()) undoManager.undo(); }
-        catch (CannotUndoException ignored) {}
+        try {
+            int caret = activeTab().getUndoHistory().undo();
+            if (caret >= 0) textArea.setCaretPosition(caret);
+        } catch (BadLocationException ignored) {}
     }
 
     private void redoAction() {
-        try { if (undoManager.canRedo()) undoManager.redo(); }
-        catch (CannotRedoException ignored) {}
+        try {
+            int caret = activeTab().getUndoHistory().redo();
+            if (caret >= 0) textArea.setCaretPosition(caret);
+        } catch (BadLocationException ignored) {}
+    }
+
+    private void showUndoMemory() {
+        StringBuilder report = new StringBuilder();
+        long total = 0;
+        for (DocumentTab tab : tabs) {
+            UndoHistory history = tab.getUndoHistory();
+            total += history.getHeapBytes();
+            report.append(String.format("%s: %d undo / %d redo, %d compressed, %d dropped, ~%d KB of %d KB%n",
+                    tab.getDisplayName(), history.getUndoCount(), history.getRedoCount(),
+                    history.getCompressedCount(), history.getDroppedCount(),
+                    history.getHeapBytes() / 1024, history.getBudgetBytes() / 1024));
+        }
+        report.append(String.format("%nTotal undo state: ~%d KB", total / 1024));
+        JOptionPane.showMessageDialog(this, report.toString(), "Undo Memory", JOptionPane.INFORMATION_MESSAGE);
     }
 
     // --- File Operations (preserved) ---
     private void newFile() {
-        textArea.setText("");
-        currentFile = null;
-        setTitle("Modern Plugin Text Editor - New File");
-        undoManager.discardAllEdits();
+        addTab(null, "");
     }
 
     private void openFile() {
-        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-            currentFile = fileChooser.getSelectedFile();
-            try (BufferedReader reader = new BufferedReader(new FileReader(currentFile))) {
-                textArea.read(reader, null);
-                setTitle("Modern Plugin Text Editor - " + currentFile.getName());
-                undoManager.discardAllEdits();
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error opening file: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        if (fileChooser().showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            openFile(fileChooser().getSelectedFile());
+        }
+    }
+
+    private DocumentTab openFile(File file) {
+        for (int i = 0; i < tabs.size(); i++) {
+            if (file.equals(tabs.get(i).getFile())) {
+                tabbedPane.setSelectedIndex(i);
+                return tabs.get(i);
             }
         }
+        try {
+            FileText content = readFile(file);
+
+            // Reuse a pristine untitled tab instead of leaving it behind.
+            DocumentTab current = activeTab();
+            if (current != null && current.getFile() == null && current.getLength() == 0 && tabs.size() == 1) {
+                tabs.remove(0);
+                tabMemory.remove(current);
+                current.setChangeStream(null);
+                changeStream.discard(current);
+                tabbedPane.removeTabAt(0);
+            }
+            DocumentTab tab = addTab(file, content.text);
+            tab.setLineSeparator(content.lineSeparator);
+            return tab;
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error opening file: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
     }
 
     private void saveFile() {
-        if (currentFile == null) {
-            if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-                currentFile = fileChooser.getSelectedFile();
+        DocumentTab tab = activeTab();
+        if (tab.getFile() == null) {
+            if (fileChooser().showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                tab.setFile(fileChooser().getSelectedFile());
             } else return;
         }
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(currentFile))) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tab.getFile()))) {
             textArea.write(writer);
-            setTitle("Modern Plugin Text Editor - " + currentFile.getName());
+            writer.flush();
+            if (tab.getJournal() != null) tab.getJournal().compact(tab.getFile());
+            tabbedPane.setTitleAt(tabs.indexOf(tab), tab.getDisplayName());
+            setTitle("Modern Plugin Text Editor - " + tab.getDisplayName());
         } catch (IOException e) {
             JOptionPane.showMessageDialog(this, "Error saving file: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    private void exitEditor() {
+        EditJournal.closeAll();
+        System.exit(0);
+    }
+
+    // --- Crash Recovery ---
+    private void recoverUnsavedEdits() {
+        java.util.List<EditJournal.Recovered> found = EditJournal.findUnclean();
+        if (found.isEmpty()) return;
+
+        StringBuilder message = new StringBuilder("The editor did not shut down cleanly.\nRecover unsaved changes to:\n");
+        for (EditJournal.Recovered r : found) {
+            message.append("  ").append(r.getDisplayName());
+            if (r.baseChanged) message.append(" (file changed on disk since)");
+            message.append('\n');
+        }
+        int choice = JOptionPane.showConfirmDialog(this, message.toString(), "Recover Unsaved Changes",
+                JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE);
+
+        for (EditJournal.Recovered r : found) {
+            if (choice == JOptionPane.YES_OPTION) {
+                DocumentTab tab = r.file != null && r.file.exists() ? openFile(r.file) : addTab(null, "");
+                if (tab != null) r.replay(tab.getTextArea().getDocument());
+            }
+            r.discard();
+        }
+    }
+
     // --- Find & Replace (preserved) ---
     private void findAndReplaceText() {
         JDialog findReplaceDialog = new JDialog(this, "Find and Replace", true);
@@ -259,17 +517,17 @@ public class Editor extends JFrame {
 
         findButton.addActionListener(e -> {
             String textToFind = findField.getText();
-            String editorText = caseSensitive.isSelected() ? textArea.getText() : textArea.getText().toLowerCase();
-            String findText = caseSensitive.isSelected() ? textToFind : textToFind.toLowerCase();
-
             if (textToFind.isEmpty()) return;
 
+            // Search the snapshot in place instead of copying (and lower-casing) the document.
+            int flags = caseSensitive.isSelected() ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+            Matcher found = Pattern.compile(Pattern.quote(textToFind), flags).matcher(TextSnapshot.of(textArea));
             int start = textArea.getSelectionEnd();
-            int index = editorText.indexOf(findText, start);
+            int index = found.find(start) ? found.start() : -1;
             if (index != -1) {
                 textArea.setCaretPosition(index);
                 textArea.setSelectionStart(index);
-                textArea.setSelectionEnd(index + textToFind.length());
+                textArea.setSelectionEnd(found.end());
                 textArea.requestFocus();
             } else {
                 JOptionPane.showMessageDialog(findReplaceDialog, "Text not found from current position.", "Not Found", JOptionPane.INFORMATION_MESSAGE);
@@ -288,16 +546,11 @@ public class Editor extends JFrame {
         replaceAllButton.addActionListener(e -> {
             String findStr = findField.getText();
             String replaceStr = replaceField.getText();
-            String originalText = textArea.getText();
+            TextSnapshot originalText = TextSnapshot.of(textArea);
             
-            String newText = originalText;
-            if (caseSensitive.isSelected()) {
-                newText = newText.replaceAll(Pattern.quote(findStr), Matcher.quoteReplacement(replaceStr));
-            } else {
-                Pattern p = Pattern.compile(Pattern.quote(findStr), Pattern.CASE_INSENSITIVE);
-                Matcher m = p.matcher(originalText);
-                newText = m.replaceAll(Matcher.quoteReplacement(replaceStr));
-            }
+            int flags = caseSensitive.isSelected() ? 0 : Pattern.CASE_INSENSITIVE;
+            Matcher m = Pattern.compile(Pattern.quote(findStr), flags).matcher(originalText);
+            String newText = m.replaceAll(Matcher.quoteReplacement(replaceStr));
             
             textArea.setText(newText);
             JOptionPane.showMessageDialog(findReplaceDialog, "All occurrences replaced.", "Replace All", JOptionPane.INFORMATION_MESSAGE);
@@ -306,55 +559,196 @@ public class Editor extends JFrame {
         findReplaceDialog.setVisible(true);
     }
 
+    // --- Find in Files ---
+    private void findInFiles() {
+        if (findInFilesDialog == null) {
+            DocumentTab tab = activeTab();
+            File startDir = tab != null && tab.getFile() != null
+                    ? tab.getFile().getAbsoluteFile().getParentFile() : new File(".");
+            findInFilesPanel = new FindInFilesPanel(startDir, this::openAt);
+            findInFilesDialog = new JDialog(this, "Find in Files", false);
+            findInFilesDialog.setSize(800, 500);
+            findInFilesDialog.setLocationRelativeTo(this);
+            findInFilesDialog.add(findInFilesPanel);
+        }
+        findInFilesDialog.setVisible(true);
+        findInFilesPanel.focusPattern();
+    }
+
+    private void openAt(File file, int line, int column, int length) {
+        DocumentTab tab = openFile(file);
+        if (tab == null) return;
+        JTextArea area = tab.getTextArea();
+        try {
+            int start = Math.min(area.getLineStartOffset(Math.min(line, area.getLineCount() - 1)) + column,
+                    area.getDocument().getLength());
+            area.setCaretPosition(start);
+            area.moveCaretPosition(Math.min(start + length, area.getDocument().getLength()));
+            area.requestFocusInWindow();
+        } catch (BadLocationException ignored) {}
+    }
+
+    // --- Compare ---
+    private void compareWithSaved() {
+        DocumentTab tab = activeTab();
+        File file = tab.getFile();
+        if (file == null || !file.isFile()) {
+            JOptionPane.showMessageDialog(this, "This document has not been saved yet.", "Compare", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        TextSnapshot current = tab.snapshot();
+        showDiff(file.getName() + " on disk", tab.getDisplayName() + " (editor)", () -> readFile(file).text, () -> current);
+    }
+
+    private void compareWithTab() {
+        DocumentTab tab = activeTab();
+        java.util.List<DocumentTab> others = new ArrayList<>(tabs);
+        others.remove(tab);
+        if (others.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No other document is open.", "Compare", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        String[] names = new String[others.size()];
+        for (int i = 0; i < names.length; i++) names[i] = others.get(i).getDisplayName();
+        Object choice = JOptionPane.showInputDialog(this, "Compare " + tab.getDisplayName() + " with:", "Compare",
+                JOptionPane.QUESTION_MESSAGE, null, names, names[0]);
+        if (choice == null) return;
+        DocumentTab other = others.get(Arrays.asList(names).indexOf(choice));
+        try {
+            CharSequence otherText = other.readText();
+            TextSnapshot current = tab.snapshot();
+            showDiff(other.getDisplayName(), tab.getDisplayName(), () -> otherText, () -> current);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Error reading " + other.getDisplayName() + ": " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void showDiff(String leftTitle, String rightTitle, Callable<? extends CharSequence> leftText, Callable<? extends CharSequence> rightText) {
+        DiffPanel panel = new DiffPanel(leftTitle, rightTitle);
+        JDialog dialog = new JDialog(this, "Compare: " + leftTitle + " - " + rightTitle, false);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override public void windowClosed(WindowEvent e) { panel.cancel(); }
+        });
+        dialog.add(panel);
+        dialog.setSize(1100, 650);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+        panel.compare(leftText, rightText);
+    }
+
+    /** A file's text with every line break turned into '\n', and the separator the file used. */
+    private static final class FileText {
+        final String text;
+        final String lineSeparator;
+
+        FileText(String text, String lineSeparator) {
+            this.text = text;
+            this.lineSeparator = lineSeparator;
+        }
+    }
+
+    /**
+     * Reads a file the way {@link DefaultEditorKit#read} does: "\r\n" and "\r" become "\n".
+     * The separator is "\r\n" if the file has any, else "\r" if it has any, else "\n".
+     */
+    private static FileText readFile(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            StringBuilder text = new StringBuilder((int) Math.min(file.length(), Integer.MAX_VALUE - 8));
+            boolean sawCrLf = false;
+            boolean sawCr = false;
+            boolean afterCr = false;
+            char[] buf = new char[8192];
+            int n;
+            while ((n = reader.read(buf)) != -1) {
+                int start = 0;
+                for (int i = 0; i < n; i++) {
+                    char c = buf[i];
+                    if (c == '\r') {
+                        sawCr |= afterCr;
+                        text.append(buf, start, i - start).append('\n');
+                        start = i + 1;
+                        afterCr = true;
+                    } else {
+                        if (afterCr && c == '\n') {
+                            start = i + 1; // already written for the '\r'
+                            sawCrLf = true;
+                        } else {
+                            sawCr |= afterCr;
+                        }
+                        afterCr = false;
+                    }
+                }
+                text.append(buf, start, n - start);
+            }
+            sawCr |= afterCr;
+            return new FileText(text.toString(), sawCrLf ? "\r\n" : sawCr ? "\r" : "\n");
+        }
+    }
+
     // --- Plugin System (preserved) ---
     private void loadPlugins() {
         pluginsMenu.removeAll();
         pluginStates.clear();
+        JMenuItem loadingItem = new JMenuItem("Loading plugins...");
+        loadingItem.setEnabled(false);
+        pluginsMenu.add(loadingItem);
+
+        long phase = StartupTimeline.begin();
+        new SwingWorker<java.util.List<Plugin>, Void>() {
+            @Override protected java.util.List<Plugin> doInBackground() {
+                return PluginLoader.load(PluginLoader.DEFAULT_DIR);
+            }
 
-        File pluginsDir = new File("plugins");
-        if (!pluginsDir.exists() || !pluginsDir.isDirectory()) {
-            pluginsMenu.add(new JMenuItem("No plugins found"));
-            return;
-        }
+            @Override protected void done() {
+                java.util.List<Plugin> plugins;
+                try {
+                    plugins = get();
+                } catch (Exception e) {
+                    System.err.println("Error loading plugins - " + e.getMessage());
+                    plugins = Collections.emptyList();
+                }
+                StartupTimeline.end("plugins (background)", phase);
+                populatePluginsMenu(plugins);
+            }
+        }.execute();
+    }
 
-        File[] pluginFiles = pluginsDir.listFiles((dir, name) -> name.endsWith(".jar"));
-        if (pluginFiles == null || pluginFiles.length == 0) {
+    private void populatePluginsMenu(java.util.List<Plugin> plugins) {
+        pluginsMenu.removeAll();
+        pluginCache.clear();
+        java.util.List<ChangeSubscriber> subscribers = new ArrayList<>();
+        for (Plugin plugin : plugins) {
+            if (plugin instanceof ChangeSubscriber) subscribers.add((ChangeSubscriber) plugin);
+        }
+        changeStream.setSubscribers(subscribers);
+        if (plugins.isEmpty()) {
             pluginsMenu.add(new JMenuItem("No plugins found"));
             return;
         }
 
-        for (File file : pluginFiles) {
-            try {
-                URL jarUrl = file.toURI().toURL();
-                URLClassLoader classLoader = new URLClassLoader(new URL[]{jarUrl}, Plugin.class.getClassLoader());
-                try (JarFile jarFile = new JarFile(file)) {
-                    Enumeration<JarEntry> entries = jarFile.entries();
-                    while (entries.hasMoreElements()) {
-                        JarEntry entry = entries.nextElement();
-                        if (entry.getName().endsWith(".class")) {
-                            String className = entry.getName().replace("/", ".").replace(".class", "");
-                            try {
-                                Class<?> cls = classLoader.loadClass(className);
-                                if (Plugin.class.isAssignableFrom(cls) && !cls.isInterface()) {
-                                    Plugin plugin = (Plugin) cls.getDeclaredConstructor().newInstance();
-                                    pluginStates.put(plugin, true);
-                                    JMenuItem pluginItem = new JMenuItem(plugin.getName());
-                                    pluginItem.addActionListener(e -> {
-                                        if (!pluginStates.get(plugin)) {
-                                            JOptionPane.showMessageDialog(this, "Plugin is disabled.", "Plugin Disabled", JOptionPane.WARNING_MESSAGE);
-                                            return;
-                                        }
-                                        plugin.execute(textArea);
-                                    });
-                                    pluginsMenu.add(pluginItem);
-                                }
-                            } catch (ClassNotFoundException ignored) {}
-                        }
+        for (Plugin plugin : plugins) {
+            pluginStates.put(plugin, true);
+            JMenuItem pluginItem = new JMenuItem(plugin.getName());
+            pluginItem.addActionListener(e -> {
+                if (!pluginStates.get(plugin)) {
+                    JOptionPane.showMessageDialog(this, "Plugin is disabled.", "Plugin Disabled", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                // Whatever the plugin changes is undone in one step.
+                UndoHistory history = activeTab().getUndoHistory();
+                history.beginCompoundEdit();
+                try {
+                    if (plugin instanceof CacheablePlugin) {
+                        runCached((CacheablePlugin<?>) plugin);
+                    } else {
+                        plugin.execute(textArea);
                     }
+                } finally {
+                    history.endCompoundEdit();
                 }
-            } catch (Exception e) {
-                System.err.println("Error loading plugin JAR: " + file.getName() + " - " + e.getMessage());
-            }
+            });
+            pluginsMenu.add(pluginItem);
         }
 
         pluginsMenu.addSeparator();
@@ -367,13 +761,23 @@ public class Editor extends JFrame {
         pluginsMenu.add(reloadItem);
     }
 
+    /** Runs an analysis plugin, reusing its last result if the document has not changed. */
+    private <R> void runCached(CacheablePlugin<R> plugin) {
+        DocumentTab tab = activeTab();
+        boolean selection = plugin.usesSelection();
+        int start = selection ? textArea.getSelectionStart() : -1;
+        int end = selection ? textArea.getSelectionEnd() : -1;
+        R result = pluginCache.get(plugin, tab.getVersion(), start, end, () -> plugin.analyze(tab.snapshot(), start, end));
+        plugin.show(textArea, result);
+    }
+
     private void openPluginManager() {
         JDialog dialog = new JDialog(this, "Plugin Manager", true);
-        dialog.setSize(400, 300);
+        dialog.setSize(760, 300);
         dialog.setLocationRelativeTo(this);
         dialog.setLayout(new BorderLayout());
 
-        JPanel panel = new JPanel(new GridLayout(0, 3, 5, 5));
+        JPanel panel = new JPanel(new GridLayout(0, 4, 5, 5));
         for (Plugin plugin : pluginStates.keySet()) {
             JLabel nameLabel = new JLabel(plugin.getName());
             JButton toggleBtn = new JButton(pluginStates.get(plugin) ? "Disable" : "Enable");
@@ -381,53 +785,117 @@ public class Editor extends JFrame {
             toggleBtn.addActionListener(e -> {
                 boolean current = pluginStates.get(plugin);
                 pluginStates.put(plugin, !current);
+                if (plugin instanceof ChangeSubscriber) changeStream.setEnabled((ChangeSubscriber) plugin, !current);
                 toggleBtn.setText(!current ? "Disable" : "Enable");
                 statusLabel.setText(!current ? "Enabled" : "Disabled");
             });
             panel.add(nameLabel);
             panel.add(toggleBtn);
             panel.add(statusLabel);
+            panel.add(new JLabel(pluginStatsText(plugin)));
         }
 
         dialog.add(new JScrollPane(panel), BorderLayout.CENTER);
+        JLabel cacheLabel = new JLabel(String.format(" Result cache: %d of %d entries, %s",
+                pluginCache.size(), pluginCache.getMaxEntries(), cacheStatsText(pluginCache.getTotal())));
+        dialog.add(cacheLabel, BorderLayout.SOUTH);
         dialog.setVisible(true);
     }
 
+    /** The cache and change-delivery statistics that apply to a plugin, for the Plugin Manager. */
+    private String pluginStatsText(Plugin plugin) {
+        java.util.List<String> parts = new ArrayList<>();
+        if (plugin instanceof CacheablePlugin) parts.add(cacheStatsText(pluginCache.getStats(plugin.getName())));
+        if (plugin instanceof ChangeSubscriber) {
+            ChangeStream.Stats stats = changeStream.getStats((ChangeSubscriber) plugin);
+            if (stats != null) {
+                parts.add(String.format("Events: lag %d edits, %d queued, %d dropped, %d failed, %d ms (max %d)",
+                        stats.lagEdits, stats.queued, stats.dropped, stats.failures, stats.lastDelayMillis, stats.maxDelayMillis));
+            }
+        }
+        return String.join("; ", parts);
+    }
+
+    private static String cacheStatsText(PluginResultCache.Stats stats) {
+        if (stats == null) return "Cache: not run yet";
+        return String.format("Cache: %d hits, %d misses (%.0f%%)", stats.getHits(), stats.getMisses(), stats.hitRate());
+    }
+
     // --- NEW: Preview Functionality ---
     private void togglePreview(boolean show) {
         isPreviewVisible = show;
-        previewPane.setVisible(show);
+        if (previewPane != null) previewPane.setVisible(show);
         splitPane.setDividerLocation(show ? 0.5 : 1.0);
+        updatePreview();
         updateStatus();
     }
 
+    private void togglePerformanceHud(boolean show) {
+        if (show) {
+            hudLabel.setText(edtMonitor.hudText());
+            hudTimer.start();
+        } else {
+            hudTimer.stop();
+        }
+        hudLabel.setVisible(show);
+    }
+
+    private JEditorPane ensurePreviewPane() {
+        if (previewPane == null) {
+            long phase = StartupTimeline.begin();
+            previewPane = new JEditorPane();
+            previewPane.setContentType("text/html");
+            previewPane.setEditable(false);
+            previewPane.setBackground(new Color(240, 240, 240));
+            previewPane.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+            previewScrollPane.setViewportView(previewPane);
+            StartupTimeline.end("preview pane (lazy)", phase);
+        }
+        return previewPane;
+    }
+
     private void updatePreview() {
-        if (!isPreviewVisible) return;
+        if (!isPreviewVisible || !previewReady || previewPending) return;
+        previewPending = true;
         
         SwingUtilities.invokeLater(() -> {
-            String text = textArea.getText();
-            String contentType = detectContentType(text);
-            
-            if ("text/html".equals(contentType)) {
-                previewPane.setContentType("text/html");
-                previewPane.setText(text);
-            } else if ("text/markdown".equals(contentType)) {
-                previewPane.setContentType("text/html");
-                previewPane.setText(convertMarkdownToHtml(text));
-            } else {
-                previewPane.setContentType("text/plain");
-                previewPane.setText("No preview available for plain text");
-            }
+            previewPending = false;
+            JEditorPane previewPane = ensurePreviewPane();
+            TextSnapshot snapshot = TextSnapshot.of(textArea);
+            int request = ++previewRequest;
+            snapshotReader.execute(() -> {
+                if (request != previewRequest) return;
+                String contentType = detectContentType(snapshot);
+                // Plain text shows no preview, so only HTML and Markdown are copied out.
+                String text = "text/plain".equals(contentType) ? null : snapshot.toString();
+                String html = "text/markdown".equals(contentType) ? convertMarkdownToHtml(text) : text;
+                SwingUtilities.invokeLater(() -> {
+                    if (request != previewRequest) return;
+                    if ("text/html".equals(contentType)) {
+                        previewPane.setContentType("text/html");
+                        previewPane.setText(text);
+                    } else if ("text/markdown".equals(contentType)) {
+                        previewPane.setContentType("text/html");
+                        previewPane.setText(html);
+                    } else {
+                        previewPane.setContentType("text/plain");
+                        previewPane.setText("No preview available for plain text");
+                    }
+                });
+            });
         });
     }
 
-    private String detectContentType(String text) {
+    private String detectContentType(CharSequence text) {
         // Simple detection - check for HTML tags or Markdown headers
-        if (text.trim().startsWith("<") && text.trim().endsWith(">")) {
+        int first = 0;
+        int last = text.length() - 1;
+        while (first <= last && text.charAt(first) <= ' ') first++;
+        while (last >= first && text.charAt(last) <= ' ') last--;
+        if (first < last && text.charAt(first) == '<' && text.charAt(last) == '>') {
             return "text/html";
         }
-        if (text.contains("# ") || text.contains("## ") || text.contains("**") || 
-            text.contains("* ") || text.contains("- ") || text.contains("```")) {
+        if (MARKDOWN_HINT.matcher(text).find()) {
             return "text/markdown";
         }
         return "text/plain";
@@ -462,12 +930,10 @@ public class Editor extends JFrame {
         html = html.replaceAll("(?s)(<li>.*?</li>)", "<ul>$1</ul>");
         
         // Links
-        html = html.replaceAll("\```math
-(.*?)\```\KATEX_INLINE_OPEN(.*?)\KATEX_INLINE_CLOSE", "<a href='$2'>$1</a>");
+        html = html.replaceAll("\\[(.*?)\\]\\((.*?)\\)", "<a href='$2'>$1</a>");
         
         // Images
-        html = html.replaceAll("!\```math
-(.*?)\```\KATEX_INLINE_OPEN(.*?)\KATEX_INLINE_CLOSE", "<img src='$2' alt='$1' style='max-width: 100%;'>");
+        html = html.replaceAll("!\\[(.*?)\\]\\((.*?)\\)", "<img src='$2' alt='$1' style='max-width: 100%;'>");
         
         // Paragraphs
         html = html.replaceAll("(?m)^(?!<[hlu])(.*?)$", "<p>$1</p>");
@@ -479,6 +945,16 @@ public class Editor extends JFrame {
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new Editor().setVisible(true));
+        StartupTimeline.milestone("main");
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(BatchRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        SwingUtilities.invokeLater(() -> {
+            long phase = StartupTimeline.begin();
+            Editor editor = new Editor();
+            StartupTimeline.end("editor constructor", phase);
+            editor.setVisible(true);
+        });
     }
 }
@@ -0,0 +1,244 @@
+package editor.app;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.PaintEvent;
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches the Event Dispatch Thread for stalls and collects the numbers behind the
+ * performance HUD.
+ * <p>
+ * A replacement event queue timestamps every dispatch. A watchdog thread samples it, and
+ * when one event has been running for longer than {@code -Deditor.edt.stallMillis}
+ * (default 200) it captures the EDT's stack and appends it to a rolling log under
+ * {@code ~/.plugin-editor/logs}. Keystroke-to-paint latency runs from when the key was
+ * pressed, as stamped on the event, so time spent queued behind slow events counts, to the
+ * end of the repaint it caused. Keys that repaint nothing, such as Shift alone, are ignored.
+ */
+final class EdtMonitor {
+
+    private static final long STALL_MILLIS = Long.getLong("editor.edt.stallMillis", 200);
+    private static final long LOG_MAX_BYTES = 1024 * 1024;
+    private static final int LOG_KEEP = 3;
+    static final Path LOG_FILE = Paths.get(System.getProperty("user.home"), ".plugin-editor", "logs", "edt-stalls.log");
+
+    private static EdtMonitor instance;
+
+    private final ExecutorService logWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "edt-stall-log");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Written by the EDT, read by the watchdog.
+    private volatile Thread edt;
+    private volatile long dispatchStart;
+    private volatile AWTEvent dispatching;
+    private final AtomicLong dispatchSeq = new AtomicLong();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong stallCount = new AtomicLong();
+
+    // Keystroke-to-paint: EDT only, except that repaint() may be called from any thread.
+    private long pendingKeyNanos;
+    private volatile boolean repaintQueued;
+    private long keyLatencyMaxNanos;
+    private long keyLatencyLastNanos;
+
+    private long lastGcMillis;
+    private long lastGcCount;
+
+    private EdtMonitor() {}
+
+    /**
+     * Installs the monitored event queue, repaint manager and watchdog once per JVM.
+     */
+    static synchronized EdtMonitor install() {
+        if (instance != null) return instance;
+        EdtMonitor monitor = new EdtMonitor();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor.new MonitoredQueue());
+        RepaintManager.setCurrentManager(monitor.new MonitoredRepaintManager());
+        Thread watchdog = new Thread(monitor::watch, "edt-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        monitor.sampleGc();
+        instance = monitor;
+        return monitor;
+    }
+
+    /**
+     * Counts queued events for the HUD. Paint and mouse-motion events can be merged into
+     * one already queued and then never dispatched, so they are left out of the count;
+     * whenever the queue is seen empty the count is reset, which also clears any drift
+     * from components that coalesce other events.
+     */
+    private final class MonitoredQueue extends EventQueue {
+        @Override
+        public void postEvent(AWTEvent event) {
+            if (!mayCoalesce(event)) queueDepth.incrementAndGet();
+            super.postEvent(event);
+        }
+
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            // Events handed over from the previous queue were never counted.
+            if (!mayCoalesce(event) && queueDepth.get() > 0) queueDepth.decrementAndGet();
+            boolean keyStarted = false;
+            if (event instanceof KeyEvent && pendingKeyNanos == 0) {
+                int id = event.getID();
+                if (id == KeyEvent.KEY_PRESSED || id == KeyEvent.KEY_TYPED) {
+                    pendingKeyNanos = pressedNanos((KeyEvent) event);
+                    repaintQueued = false;
+                    keyStarted = true;
+                }
+            }
+
+            edt = Thread.currentThread();
+            dispatching = event;
+            dispatchSeq.incrementAndGet();
+            dispatchStart = System.nanoTime();
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                dispatchStart = 0;
+                dispatching = null;
+                int depth = queueDepth.get();
+                if (depth != 0 && peekEvent() == null) queueDepth.compareAndSet(depth, 0);
+                // Otherwise the key would wait for an unrelated paint, such as the caret blinking.
+                if (keyStarted && !repaintQueued) pendingKeyNanos = 0;
+            }
+        }
+    }
+
+    /** When the key was pressed, on the {@link System#nanoTime()} scale. */
+    private static long pressedNanos(KeyEvent event) {
+        long when = event.getWhen();
+        long queuedMillis = when > 0 ? Math.max(0, System.currentTimeMillis() - when) : 0;
+        return System.nanoTime() - queuedMillis * 1_000_000;
+    }
+
+    /** Whether the event queue may merge this event into an earlier one instead of queueing it. */
+    private static boolean mayCoalesce(AWTEvent event) {
+        int id = event.getID();
+        return id == PaintEvent.PAINT || id == PaintEvent.UPDATE
+                || id == MouseEvent.MOUSE_MOVED || id == MouseEvent.MOUSE_DRAGGED;
+    }
+
+    private final class MonitoredRepaintManager extends RepaintManager {
+        @Override
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            super.addDirtyRegion(c, x, y, w, h);
+            repaintQueued = true;
+        }
+
+        @Override
+        public void paintDirtyRegions() {
+            super.paintDirtyRegions();
+            if (pendingKeyNanos != 0) {
+                keyLatencyLastNanos = System.nanoTime() - pendingKeyNanos;
+                keyLatencyMaxNanos = Math.max(keyLatencyMaxNanos, keyLatencyLastNanos);
+                pendingKeyNanos = 0;
+            }
+        }
+    }
+
+    private void watch() {
+        long thresholdNanos = STALL_MILLIS * 1_000_000;
+        long pollMillis = Math.max(10, STALL_MILLIS / 4);
+        long reportedSeq = -1;
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long start = dispatchStart;
+            long seq = dispatchSeq.get();
+            AWTEvent event = dispatching;
+            Thread thread = edt;
+            if (start == 0 || thread == null || seq == reportedSeq) continue;
+            long elapsed = System.nanoTime() - start;
+            if (elapsed < thresholdNanos) continue;
+
+            StackTraceElement[] stack = thread.getStackTrace();
+            // Only report if the same dispatch is still running after the stack was taken.
+            if (dispatchSeq.get() != seq || dispatchStart == 0) continue;
+            reportedSeq = seq;
+            stallCount.incrementAndGet();
+            String description = event == null ? "unknown event" : event.getClass().getSimpleName() + " " + event.paramString();
+            logWriter.execute(() -> logStall(elapsed / 1_000_000, description, stack));
+        }
+    }
+
+    private static void logStall(long millis, String event, StackTraceElement[] stack) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(LocalDateTime.now()).append(" EDT stalled ").append(millis).append(" ms so far in ")
+             .append(event).append(System.lineSeparator());
+        for (StackTraceElement frame : stack) {
+            entry.append("    at ").append(frame).append(System.lineSeparator());
+        }
+        entry.append(System.lineSeparator());
+        try {
+            Files.createDirectories(LOG_FILE.getParent());
+            if (Files.exists(LOG_FILE) && Files.size(LOG_FILE) > LOG_MAX_BYTES) roll();
+            Files.write(LOG_FILE, entry.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error writing EDT stall log - " + e.getMessage());
+        }
+    }
+
+    private static void roll() throws IOException {
+        for (int i = LOG_KEEP - 1; i >= 1; i--) {
+            Path from = Paths.get(LOG_FILE + "." + i);
+            if (Files.exists(from)) Files.move(from, Paths.get(LOG_FILE + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(LOG_FILE, Paths.get(LOG_FILE + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * One line for the status bar HUD. Resets the interval maxima, so call it on a fixed
+     * timer from the EDT.
+     */
+    String hudText() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long gcMillis = 0;
+        long gcCount = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(0, gc.getCollectionTime());
+            gcCount += Math.max(0, gc.getCollectionCount());
+        }
+        long gcPause = gcMillis - lastGcMillis;
+        long gcs = gcCount - lastGcCount;
+        lastGcMillis = gcMillis;
+        lastGcCount = gcCount;
+
+        String text = String.format(" key-to-paint %.1f ms (max %.1f) | queue %d | heap %d/%d MB | GC %d ms in %d | stalls %d ",
+                keyLatencyLastNanos / 1e6, keyLatencyMaxNanos / 1e6, queueDepth.get(),
+                heap.getUsed() >> 20, heap.getMax() >> 20, gcPause, gcs, stallCount.get());
+        keyLatencyMaxNanos = 0;
+        return text;
+    }
+
+    private void sampleGc() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            lastGcMillis += Math.max(0, gc.getCollectionTime());
+            lastGcCount += Math.max(0, gc.getCollectionCount());
+        }
+    }
+
+    long getStallThresholdMillis() { return STALL_MILLIS; }
+}
@@ -0,0 +1,137 @@
+package editor.app;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * "Find in Files" results panel. Matches stream in while the search runs; clicking
+ * one hands it to the editor to open the file at the match.
+ */
+class FindInFilesPanel extends JPanel {
+
+    /** Callback used to open a file with the caret on a match. */
+    interface Opener {
+        void open(File file, int line, int column, int length);
+    }
+
+    /** Keeps the list model, not the search, from becoming the bottleneck on huge result sets. */
+    private static final int MAX_LISTED = 20000;
+
+    private final JTextField dirField = new JTextField();
+    private final JTextField patternField = new JTextField();
+    private final JCheckBox matchCase = new JCheckBox("Match case");
+    private final JButton searchButton = new JButton("Search");
+    private final JLabel statusLabel = new JLabel(" ");
+    private final DefaultListModel<ProjectSearch.Match> results = new DefaultListModel<>();
+    private final JList<ProjectSearch.Match> resultList = new JList<>(results);
+    private final ConcurrentLinkedQueue<ProjectSearch.Match> incoming = new ConcurrentLinkedQueue<>();
+    private final Timer drainTimer = new Timer(100, e -> drain());
+
+    private ProjectSearch search;
+    private long startNanos;
+    private int patternLength;
+
+    FindInFilesPanel(File initialDir, Opener opener) {
+        super(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+
+        dirField.setText(initialDir.getAbsolutePath());
+        JButton browseButton = new JButton("...");
+        browseButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser(dirField.getText());
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                dirField.setText(chooser.getSelectedFile().getAbsolutePath());
+            }
+        });
+
+        JPanel form = new JPanel(new GridLayout(2, 1, 5, 5));
+        JPanel dirRow = new JPanel(new BorderLayout(5, 5));
+        dirRow.add(new JLabel("Directory:"), BorderLayout.WEST);
+        dirRow.add(dirField, BorderLayout.CENTER);
+        dirRow.add(browseButton, BorderLayout.EAST);
+        JPanel patternRow = new JPanel(new BorderLayout(5, 5));
+        patternRow.add(new JLabel("Find:"), BorderLayout.WEST);
+        patternRow.add(patternField, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        buttons.add(matchCase);
+        buttons.add(searchButton);
+        patternRow.add(buttons, BorderLayout.EAST);
+        form.add(dirRow);
+        form.add(patternRow);
+        add(form, BorderLayout.NORTH);
+
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.setFont(new Font("Consolas", Font.PLAIN, 12));
+        resultList.addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                ProjectSearch.Match match = resultList.getSelectedValue();
+                if (match != null) opener.open(match.file.toFile(), match.line, match.column, patternLength);
+            }
+        });
+        add(new JScrollPane(resultList), BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+
+        searchButton.addActionListener(e -> {
+            if (search != null) search.cancel(); else startSearch();
+        });
+        patternField.addActionListener(e -> { if (search == null) startSearch(); });
+    }
+
+    void focusPattern() {
+        patternField.requestFocusInWindow();
+        patternField.selectAll();
+    }
+
+    private void startSearch() {
+        String text = patternField.getText();
+        File dir = new File(dirField.getText());
+        if (text.isEmpty() || !dir.isDirectory()) {
+            statusLabel.setText(text.isEmpty() ? "Enter text to find." : "Not a directory: " + dir);
+            return;
+        }
+        results.clear();
+        incoming.clear();
+        patternLength = text.length();
+        startNanos = System.nanoTime();
+        searchButton.setText("Stop");
+
+        ProjectSearch current = new ProjectSearch(dir.toPath(), text, matchCase.isSelected());
+        search = current;
+        drainTimer.start();
+        current.start(incoming::add, () -> SwingUtilities.invokeLater(() -> {
+            drain();
+            drainTimer.stop();
+            search = null;
+            searchButton.setText("Search");
+            showStatus(current, true);
+        }));
+    }
+
+    private void drain() {
+        if (search == null && incoming.isEmpty()) return;
+        List<ProjectSearch.Match> batch = new ArrayList<>();
+        ProjectSearch.Match match;
+        while (results.size() + batch.size() < MAX_LISTED && (match = incoming.poll()) != null) batch.add(match);
+        if (results.size() >= MAX_LISTED) incoming.clear();
+        if (!batch.isEmpty()) {
+            results.addAll(batch);
+        }
+        if (search != null) showStatus(search, false);
+    }
+
+    private void showStatus(ProjectSearch s, boolean done) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        statusLabel.setText(String.format("%s %d matches in %d files (%d files, %.1f MB scanned, %.2f s)%s",
+                done ? (s.isCancelled() ? "Stopped." : "Done.") : "Searching...",
+                results.size(), s.getFilesMatched(), s.getFilesScanned(),
+                s.getBytesScanned() / (1024.0 * 1024.0), seconds,
+                results.size() >= MAX_LISTED ? " - list truncated" : ""));
+    }
+}
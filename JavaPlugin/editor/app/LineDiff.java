@@ -0,0 +1,306 @@
+package editor.app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Line diff of two texts using Myers' O(ND) algorithm with the linear-space
+ * "middle snake" refinement.
+ * <p>
+ * Each line is reduced to a hash up front, so the inner loop compares ints and only
+ * touches the text to confirm a hash match. Lines whose hash never occurs on the other
+ * side cannot be part of any match; they are marked as changed straight away and the
+ * search runs over the remaining lines only, which makes mostly-rewritten files cheap. Besides the two texts, memory is a few int
+ * arrays and bit sets proportional to the line count: the forward and reverse V arrays
+ * are allocated once and reused by every subproblem. Subproblems are kept on an explicit
+ * stack and only mark which lines changed, so recursion depth never depends on the
+ * number of edits.
+ * <p>
+ * Very different inputs would make the exact algorithm quadratic, so a subproblem that
+ * has not met in the middle after {@link #COST_LIMIT} steps is split at the furthest
+ * point reached instead. The result is still a correct diff, just not always a minimal one.
+ */
+final class LineDiff {
+
+    private static final int COST_LIMIT = 256;
+
+    /** Lines [aStart, aStart + aCount) of the old text became [bStart, bStart + bCount) of the new. */
+    static final class Hunk {
+        final int aStart;
+        final int aCount;
+        final int bStart;
+        final int bCount;
+
+        Hunk(int aStart, int aCount, int bStart, int bCount) {
+            this.aStart = aStart;
+            this.aCount = aCount;
+            this.bStart = bStart;
+            this.bCount = bCount;
+        }
+    }
+
+    /** A text split into lines. Line terminators, including a '\r' before '\n', are not content. */
+    static final class Lines {
+        final CharSequence text;
+        /** Offsets of each line's first char and of the end of its content. */
+        private final int[] starts;
+        private final int[] ends;
+        final int[] hashes;
+
+        Lines(CharSequence text) {
+            this.text = text;
+            int length = text.length();
+            int count = 1;
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(i) == '\n') count++;
+            }
+            starts = new int[count];
+            ends = new int[count];
+            hashes = new int[count];
+            int start = 0;
+            for (int line = 0; line < count; line++) {
+                int end = start;
+                while (end < length && text.charAt(end) != '\n') end++;
+                int next = end + 1;
+                if (end > start && text.charAt(end - 1) == '\r') end--;
+                int h = 0;
+                for (int i = start; i < end; i++) h = 31 * h + text.charAt(i);
+                starts[line] = start;
+                ends[line] = end;
+                hashes[line] = h;
+                start = next;
+            }
+        }
+
+        int size() { return starts.length; }
+
+        String get(int line) { return text.subSequence(starts[line], ends[line]).toString(); }
+
+        /** At most the first {@code maxChars} chars of a line. */
+        String get(int line, int maxChars) {
+            return text.subSequence(starts[line], Math.min(ends[line], starts[line] + maxChars)).toString();
+        }
+
+        boolean sameLine(int line, Lines other, int otherLine) {
+            int length = ends[line] - starts[line];
+            if (hashes[line] != other.hashes[otherLine] || length != other.ends[otherLine] - other.starts[otherLine]) {
+                return false;
+            }
+            for (int i = starts[line], j = other.starts[otherLine], end = i + length; i < end; i++, j++) {
+                if (text.charAt(i) != other.text.charAt(j)) return false;
+            }
+            return true;
+        }
+    }
+
+    private final Lines a;
+    private final Lines b;
+    private final BitSet changedA;
+    private final BitSet changedB;
+    private volatile boolean cancelled;
+    /** Lines of {@code a} and {@code b} that may have a match on the other side. */
+    private int[] aIndex;
+    private int[] bIndex;
+    private int[] forward;
+    private int[] reverse;
+
+    LineDiff(Lines a, Lines b) {
+        this.a = a;
+        this.b = b;
+        this.changedA = new BitSet(a.size());
+        this.changedB = new BitSet(b.size());
+    }
+
+    /** Makes a running {@link #compute()} throw {@link CancellationException}. Any thread. */
+    void cancel() { cancelled = true; }
+
+    /**
+     * Runs the diff on the calling thread.
+     *
+     * @return The hunks in line order; empty if the texts have the same lines.
+     * @throws CancellationException if {@link #cancel()} was called.
+     */
+    List<Hunk> compute() {
+        aIndex = candidates(a, b, changedA);
+        bIndex = candidates(b, a, changedB);
+        int n = aIndex.length;
+        int m = bIndex.length;
+        forward = new int[n + m + 4];
+        reverse = new int[n + m + 4];
+
+        Deque<int[]> pending = new ArrayDeque<>();
+        pending.push(new int[] {0, n, 0, m});
+        while (!pending.isEmpty()) {
+            if (cancelled) throw new CancellationException();
+            int[] p = pending.pop();
+            int aLo = p[0], aHi = p[1], bLo = p[2], bHi = p[3];
+
+            while (aLo < aHi && bLo < bHi && same(aLo, bLo)) { aLo++; bLo++; }
+            while (aLo < aHi && bLo < bHi && same(aHi - 1, bHi - 1)) { aHi--; bHi--; }
+            if (aLo == aHi || bLo == bHi) {
+                markChanged(aLo, aHi, bLo, bHi);
+                continue;
+            }
+            long split = middleSnake(aLo, aHi, bLo, bHi);
+            int x = aLo + (int) (split >>> 32);
+            int y = bLo + (int) split;
+            // A split must make progress; otherwise treat the ranges as wholly replaced.
+            if (split < 0 || (x == aLo && y == bLo) || (x == aHi && y == bHi)) {
+                markChanged(aLo, aHi, bLo, bHi);
+                continue;
+            }
+            pending.push(new int[] {x, aHi, y, bHi});
+            pending.push(new int[] {aLo, x, bLo, y});
+        }
+        aIndex = null;
+        bIndex = null;
+        forward = null;
+        reverse = null;
+        return hunks();
+    }
+
+    /**
+     * Marks lines of {@code lines} whose hash does not occur in {@code other} as changed.
+     *
+     * @return The indexes of the remaining lines.
+     */
+    private int[] candidates(Lines lines, Lines other, BitSet changed) {
+        int[] otherHashes = other.hashes.clone();
+        Arrays.sort(otherHashes);
+        int[] index = new int[lines.size()];
+        int count = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (Arrays.binarySearch(otherHashes, lines.hashes[i]) >= 0) {
+                index[count++] = i;
+            } else {
+                changed.set(i);
+            }
+        }
+        return Arrays.copyOf(index, count);
+    }
+
+    /** Compares lines by their position in the candidate index. */
+    private boolean same(int i, int j) {
+        return a.sameLine(aIndex[i], b, bIndex[j]);
+    }
+
+    private void markChanged(int aLo, int aHi, int bLo, int bHi) {
+        for (int i = aLo; i < aHi; i++) changedA.set(aIndex[i]);
+        for (int j = bLo; j < bHi; j++) changedB.set(bIndex[j]);
+    }
+
+    /**
+     * Finds where an optimal path through the subproblem crosses its middle diagonal.
+     *
+     * @return The split point relative to (aLo, bLo) as {@code x << 32 | y}, or -1 if the
+     *         two ranges have no line in common.
+     */
+    private long middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        // Only diagonals within the cost limit are ever touched, so only those are cleared.
+        int reach = Math.min(maxD, COST_LIMIT + 2);
+        int low = offset - reach;
+        int high = offset + reach + 2;
+        int[] v1 = forward;
+        int[] v2 = reverse;
+        Arrays.fill(v1, low, high, -1);
+        Arrays.fill(v2, low, high, -1);
+        v1[offset + 1] = 0;
+        v2[offset + 1] = 0;
+        int delta = n - m;
+        boolean front = (delta & 1) != 0;
+        int k1start = 0, k1end = 0, k2start = 0, k2end = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            if ((d & 255) == 0 && cancelled) throw new CancellationException();
+            if (d > COST_LIMIT) return furthestForward(v1, offset, d, k1start, k1end, n, m);
+
+            for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+                int k1Offset = offset + k1;
+                int x1 = k1 == -d || (k1 != d && v1[k1Offset - 1] < v1[k1Offset + 1])
+                        ? v1[k1Offset + 1] : v1[k1Offset - 1] + 1;
+                int y1 = x1 - k1;
+                while (x1 < n && y1 < m && same(aLo + x1, bLo + y1)) { x1++; y1++; }
+                v1[k1Offset] = x1;
+                if (x1 > n) {
+                    k1end += 2;
+                } else if (y1 > m) {
+                    k1start += 2;
+                } else if (front) {
+                    int k2Offset = offset + delta - k1;
+                    if (k2Offset >= low && k2Offset < high && v2[k2Offset] != -1 && x1 >= n - v2[k2Offset]) {
+                        return (long) x1 << 32 | y1;
+                    }
+                }
+            }
+
+            for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+                int k2Offset = offset + k2;
+                int x2 = k2 == -d || (k2 != d && v2[k2Offset - 1] < v2[k2Offset + 1])
+                        ? v2[k2Offset + 1] : v2[k2Offset - 1] + 1;
+                int y2 = x2 - k2;
+                while (x2 < n && y2 < m && same(aHi - x2 - 1, bHi - y2 - 1)) { x2++; y2++; }
+                v2[k2Offset] = x2;
+                if (x2 > n) {
+                    k2end += 2;
+                } else if (y2 > m) {
+                    k2start += 2;
+                } else if (!front) {
+                    int k1Offset = offset + delta - k2;
+                    if (k1Offset >= low && k1Offset < high && v1[k1Offset] != -1) {
+                        int x1 = v1[k1Offset];
+                        int y1 = offset + x1 - k1Offset;
+                        if (x1 >= n - x2) return (long) x1 << 32 | y1;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** The forward path point closest to the end, used when a subproblem is too costly. */
+    private static long furthestForward(int[] v1, int offset, int d, int k1start, int k1end, int n, int m) {
+        int bestX = -1;
+        int bestY = -1;
+        for (int k1 = -d + 1 + k1start; k1 <= d - 1 - k1end; k1 += 2) {
+            int x = v1[offset + k1];
+            int y = x - k1;
+            if (x < 0 || x > n || y < 0 || y > m || (x == n && y == m)) continue;
+            if (x + y > bestX + bestY) {
+                bestX = x;
+                bestY = y;
+            }
+        }
+        if (bestX <= 0 && bestY <= 0) return -1;
+        return (long) bestX << 32 | bestY;
+    }
+
+    private List<Hunk> hunks() {
+        List<Hunk> hunks = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        int n = a.size();
+        int m = b.size();
+        while (i < n || j < m) {
+            if (i < n && j < m && !changedA.get(i) && !changedB.get(j)) {
+                i++;
+                j++;
+                continue;
+            }
+            int aStart = i;
+            int bStart = j;
+            while (i < n && changedA.get(i)) i++;
+            while (j < m && changedB.get(j)) j++;
+            hunks.add(new Hunk(aStart, i - aStart, bStart, j - bStart));
+        }
+        return hunks;
+    }
+}
@@ -0,0 +1,62 @@
+package editor.app;
+
+import editor.api.Plugin;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Discovers and instantiates plugins from the JAR files in a directory.
+ * Shared by the Swing editor and the headless batch runner.
+ */
+final class PluginLoader {
+
+    static final File DEFAULT_DIR = new File("plugins");
+
+    private PluginLoader() {}
+
+    /**
+     * Loads every concrete {@link Plugin} class found in the JARs of {@code pluginsDir}.
+     * JARs that fail to load are reported on stderr and skipped.
+     *
+     * @return The plugins in discovery order; empty if the directory has no JARs.
+     */
+    static List<Plugin> load(File pluginsDir) {
+        List<Plugin> plugins = new ArrayList<>();
+        if (!pluginsDir.exists() || !pluginsDir.isDirectory()) return plugins;
+
+        File[] pluginFiles = pluginsDir.listFiles((dir, name) -> name.endsWith(".jar"));
+        if (pluginFiles == null) return plugins;
+
+        for (File file : pluginFiles) {
+            try {
+                URL jarUrl = file.toURI().toURL();
+                URLClassLoader classLoader = new URLClassLoader(new URL[]{jarUrl}, Plugin.class.getClassLoader());
+                try (JarFile jarFile = new JarFile(file)) {
+                    Enumeration<JarEntry> entries = jarFile.entries();
+                    while (entries.hasMoreElements()) {
+                        JarEntry entry = entries.nextElement();
+                        if (entry.getName().endsWith(".class")) {
+                            String className = entry.getName().replace("/", ".").replace(".class", "");
+                            try {
+                                Class<?> cls = classLoader.loadClass(className);
+                                if (Plugin.class.isAssignableFrom(cls) && !cls.isInterface()) {
+                                    plugins.add((Plugin) cls.getDeclaredConstructor().newInstance());
+                                }
+                            } catch (ClassNotFoundException ignored) {}
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("Error loading plugin JAR: " + file.getName() + " - " + e.getMessage());
+            }
+        }
+        return plugins;
+    }
+}
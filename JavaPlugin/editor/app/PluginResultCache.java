@@ -0,0 +1,122 @@
+package editor.app;
+
+import editor.api.CacheablePlugin;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Least-recently-used cache of {@link CacheablePlugin} results.
+ * <p>
+ * Entries are keyed by plugin instance, document version and selection. Versions come
+ * from one counter shared by all tabs and never repeat, so a version names exactly one
+ * text, and repeated runs on an unchanged document cost a map lookup. The cache holds at
+ * most {@code -Deditor.pluginCache.entries} results (default 64). EDT only.
+ */
+final class PluginResultCache {
+
+    private static final int DEFAULT_ENTRIES = 64;
+
+    /** Hit and miss counts for one plugin, kept by name so they survive Reload Plugins. */
+    static final class Stats {
+        private long hits;
+        private long misses;
+
+        long getHits() { return hits; }
+
+        long getMisses() { return misses; }
+
+        /** @return Hits as a percentage of lookups, or 0 if there were none. */
+        double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : 100.0 * hits / total;
+        }
+    }
+
+    private static final class Key {
+        final CacheablePlugin<?> plugin;
+        final long version;
+        final int selectionStart;
+        final int selectionEnd;
+
+        Key(CacheablePlugin<?> plugin, long version, int selectionStart, int selectionEnd) {
+            this.plugin = plugin;
+            this.version = version;
+            this.selectionStart = selectionStart;
+            this.selectionEnd = selectionEnd;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return plugin == k.plugin && version == k.version
+                    && selectionStart == k.selectionStart && selectionEnd == k.selectionEnd;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = System.identityHashCode(plugin);
+            h = 31 * h + Long.hashCode(version);
+            h = 31 * h + selectionStart;
+            return 31 * h + selectionEnd;
+        }
+    }
+
+    private final int maxEntries;
+    private final Map<Key, Object> entries;
+    private final Map<String, Stats> stats = new HashMap<>();
+    private final Stats total = new Stats();
+
+    PluginResultCache() {
+        this(Integer.getInteger("editor.pluginCache.entries", DEFAULT_ENTRIES));
+    }
+
+    PluginResultCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                return size() > PluginResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for this plugin and document state, or computes and
+     * caches it.
+     *
+     * @param version The document version, see {@link DocumentTab#getVersion()}.
+     * @param selectionStart Selection start, or -1 if the plugin ignores the selection.
+     * @param selectionEnd Selection end, or -1 if the plugin ignores the selection.
+     */
+    @SuppressWarnings("unchecked")
+    <R> R get(CacheablePlugin<R> plugin, long version, int selectionStart, int selectionEnd, Supplier<R> compute) {
+        Key key = new Key(plugin, version, selectionStart, selectionEnd);
+        Stats pluginStats = stats.computeIfAbsent(plugin.getName(), name -> new Stats());
+        if (entries.containsKey(key)) {
+            pluginStats.hits++;
+            total.hits++;
+            return (R) entries.get(key);
+        }
+        pluginStats.misses++;
+        total.misses++;
+        R result = compute.get();
+        entries.put(key, result);
+        return result;
+    }
+
+    /** Drops every result, for example when plugins are reloaded. Statistics are kept. */
+    void clear() { entries.clear(); }
+
+    /** @return The statistics for a plugin, or null if it has never been run. */
+    Stats getStats(String pluginName) { return stats.get(pluginName); }
+
+    Stats getTotal() { return total; }
+
+    int size() { return entries.size(); }
+
+    int getMaxEntries() { return maxEntries; }
+}
@@ -0,0 +1,278 @@
+package editor.app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Searches every text file under a directory for a literal string.
+ * <p>
+ * Directories are walked in parallel on a fork/join pool. The pattern is encoded once
+ * as UTF-8 and matched against raw file bytes, so file contents are never decoded or
+ * copied onto the heap. Large files are memory-mapped; small ones are read into a reused
+ * per-thread direct buffer, because mapping tens of thousands of tiny files can exhaust
+ * the process's map count before the GC gets round to unmapping them.
+ * <p>
+ * Matches are handed to the sink from worker threads as soon as they are found.
+ */
+class ProjectSearch {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private static final Set<String> IGNORED_DIRS = new HashSet<>(Arrays.asList(
+            ".git", ".svn", ".hg", ".idea", "node_modules", "target", "build", "out"));
+    private static final Set<String> IGNORED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "class", "jar", "zip", "gz", "tar", "png", "jpg", "jpeg", "gif", "ico", "pdf",
+            "exe", "dll", "so", "o", "a", "bin", "journal", "spill"));
+
+    private static final int MAP_THRESHOLD = 256 * 1024;
+    private static final int BINARY_SNIFF_BYTES = 8000;
+    private static final int FILES_PER_TASK = 64;
+    private static final int MAX_MATCHES_PER_FILE = 1000;
+    private static final int PREVIEW_BYTES = 200;
+
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MAP_THRESHOLD));
+
+    /** One occurrence of the pattern. Line and column are zero-based; column counts chars. */
+    static final class Match {
+        final Path file;
+        final int line;
+        final int column;
+        final String preview;
+
+        Match(Path file, int line, int column, String preview) {
+            this.file = file;
+            this.line = line;
+            this.column = column;
+            this.preview = preview;
+        }
+
+        @Override
+        public String toString() {
+            return file + ":" + (line + 1) + ": " + preview;
+        }
+    }
+
+    private final Path root;
+    private final byte[] pattern;
+    private final boolean matchCase;
+    private final int[] shift = new int[256];
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicLong filesScanned = new AtomicLong();
+    private final AtomicLong filesMatched = new AtomicLong();
+    private final AtomicLong bytesScanned = new AtomicLong();
+    private Consumer<Match> sink;
+
+    ProjectSearch(Path root, String text, boolean matchCase) {
+        this.root = root;
+        this.matchCase = matchCase;
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (!matchCase) {
+            for (int i = 0; i < bytes.length; i++) bytes[i] = lowerAscii(bytes[i]);
+        }
+        this.pattern = bytes;
+
+        // Boyer-Moore-Horspool bad-character table; case-insensitive search folds ASCII only.
+        int m = pattern.length;
+        Arrays.fill(shift, m);
+        for (int i = 0; i < m - 1; i++) {
+            shift[pattern[i] & 0xFF] = m - 1 - i;
+            if (!matchCase) shift[upperAscii(pattern[i]) & 0xFF] = m - 1 - i;
+        }
+    }
+
+    /**
+     * Runs the search on the shared pool, calling {@code sink} from worker threads for
+     * each match and {@code onDone} once the walk has finished or been cancelled.
+     */
+    void start(Consumer<Match> sink, Runnable onDone) {
+        this.sink = sink;
+        Thread thread = new Thread(() -> {
+            try {
+                if (pattern.length > 0) POOL.invoke(new DirectoryTask(root));
+            } finally {
+                onDone.run();
+            }
+        }, "project-search");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void cancel() { cancelled.set(true); }
+
+    boolean isCancelled() { return cancelled.get(); }
+
+    long getFilesScanned() { return filesScanned.get(); }
+
+    long getFilesMatched() { return filesMatched.get(); }
+
+    long getBytesScanned() { return bytesScanned.get(); }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private final Path dir;
+
+        DirectoryTask(Path dir) { this.dir = dir; }
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> subtasks = new ArrayList<>();
+            List<Path> batch = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    if (cancelled.get()) break;
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    String name = entry.getFileName().toString();
+                    if (attrs.isDirectory()) {
+                        if (!IGNORED_DIRS.contains(name)) subtasks.add(fork(new DirectoryTask(entry)));
+                    } else if (attrs.isRegularFile() && attrs.size() > 0 && !isIgnoredFile(name)) {
+                        batch.add(entry);
+                        if (batch.size() == FILES_PER_TASK) {
+                            subtasks.add(fork(new FileTask(batch)));
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException ignored) {
+                // unreadable directory: skip it
+            }
+            if (!batch.isEmpty()) new FileTask(batch).compute();
+            for (RecursiveAction task : subtasks) task.join();
+        }
+
+        private RecursiveAction fork(RecursiveAction task) {
+            task.fork();
+            return task;
+        }
+    }
+
+    private final class FileTask extends RecursiveAction {
+        private final List<Path> files;
+
+        FileTask(List<Path> files) { this.files = files; }
+
+        @Override
+        protected void compute() {
+            for (Path file : files) {
+                if (cancelled.get()) return;
+                try {
+                    searchFile(file);
+                } catch (IOException ignored) {
+                    // unreadable or vanished file: skip it
+                }
+            }
+        }
+    }
+
+    private static boolean isIgnoredFile(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && IGNORED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private void searchFile(Path file) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > Integer.MAX_VALUE) return;
+            if (size > MAP_THRESHOLD) {
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buf = READ_BUFFER.get();
+                buf.clear();
+                while (buf.position() < size && channel.read(buf) != -1) {}
+                buf.flip();
+            }
+        }
+        filesScanned.incrementAndGet();
+        bytesScanned.addAndGet(buf.limit());
+        if (isBinary(buf)) return;
+        scan(file, buf);
+    }
+
+    private static boolean isBinary(ByteBuffer buf) {
+        int n = Math.min(buf.limit(), BINARY_SNIFF_BYTES);
+        for (int i = 0; i < n; i++) {
+            if (buf.get(i) == 0) return true;
+        }
+        return false;
+    }
+
+    private void scan(Path file, ByteBuffer buf) {
+        int n = buf.limit();
+        int m = pattern.length;
+        int line = 0;
+        int lineStart = 0;
+        int counted = 0; // bytes up to here have been scanned for newlines
+        int found = 0;
+
+        int i = 0;
+        while (i <= n - m) {
+            int j = m - 1;
+            while (j >= 0 && fold(buf.get(i + j)) == pattern[j]) j--;
+            if (j < 0) {
+                for (; counted < i; counted++) {
+                    if (buf.get(counted) == '\n') {
+                        line++;
+                        lineStart = counted + 1;
+                    }
+                }
+                if (found++ == 0) filesMatched.incrementAndGet();
+                sink.accept(new Match(file, line, utf16Length(buf, lineStart, i), preview(buf, lineStart)));
+                if (found == MAX_MATCHES_PER_FILE || cancelled.get()) return;
+                i += m;
+            } else {
+                i += shift[buf.get(i + m - 1) & 0xFF];
+            }
+        }
+    }
+
+    private byte fold(byte b) {
+        return matchCase ? b : lowerAscii(b);
+    }
+
+    private static String preview(ByteBuffer buf, int lineStart) {
+        int end = lineStart;
+        int limit = Math.min(buf.limit(), lineStart + PREVIEW_BYTES);
+        while (end < limit && buf.get(end) != '\n' && buf.get(end) != '\r') end++;
+        return decode(buf, lineStart, end).trim();
+    }
+
+    /** Number of UTF-16 chars encoded by the UTF-8 bytes in [from, to), without decoding them. */
+    private static int utf16Length(ByteBuffer buf, int from, int to) {
+        int chars = 0;
+        for (int i = from; i < to; i++) {
+            int b = buf.get(i) & 0xFF;
+            if ((b & 0xC0) != 0x80) chars++;   // not a continuation byte
+            if (b >= 0xF0) chars++;            // 4-byte sequence: surrogate pair
+        }
+        return chars;
+    }
+
+    private static String decode(ByteBuffer buf, int from, int to) {
+        ByteBuffer slice = buf.duplicate();
+        slice.position(from).limit(to);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+
+    private static byte lowerAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    private static byte upperAscii(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - 32) : b;
+    }
+}
@@ -0,0 +1,40 @@
+package editor.app;
+
+import editor.api.TextSnapshot;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.GapContent;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * Document storage that keeps a {@link TextSnapshot} of its text up to date.
+ * <p>
+ * The gap buffer still serves the text component, with its positions and segments;
+ * every insert and remove is also applied to the snapshot, which shares all but the
+ * edited chunk with its predecessor. {@link #snapshot()} therefore costs nothing and
+ * may be called from any thread. The snapshot leaves out the newline that every
+ * document content ends with.
+ */
+final class SnapshotContent extends GapContent {
+
+    private volatile TextSnapshot snapshot = TextSnapshot.EMPTY;
+
+    @Override
+    public UndoableEdit insertString(int where, String str) throws BadLocationException {
+        UndoableEdit edit = super.insertString(where, str);
+        snapshot = snapshot.insert(where, str);
+        return edit;
+    }
+
+    @Override
+    public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+        UndoableEdit edit = super.remove(where, nitems);
+        snapshot = snapshot.delete(where, where + nitems);
+        return edit;
+    }
+
+    /** The text as of the last completed edit. Any thread. */
+    TextSnapshot snapshot() {
+        return snapshot;
+    }
+}
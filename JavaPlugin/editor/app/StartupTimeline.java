@@ -0,0 +1,47 @@
+package editor.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records how long each startup phase took, measured from {@code main}.
+ * <p>
+ * Phases may overlap (plugins load in the background while the frame is shown), so each
+ * entry keeps its own start offset and duration. Set {@code -Deditor.startup.trace=true}
+ * to print the timeline to stderr once the first keystroke arrives.
+ */
+final class StartupTimeline {
+
+    static final boolean TRACE = Boolean.getBoolean("editor.startup.trace");
+
+    private static final long ORIGIN = System.nanoTime();
+    private static final List<String> entries = new ArrayList<>();
+
+    private StartupTimeline() {}
+
+    /** @return A start token for {@link #end(String, long)}. */
+    static long begin() {
+        return System.nanoTime();
+    }
+
+    /** Records a phase that started at {@code start}. Safe to call from any thread. */
+    static void end(String phase, long start) {
+        long now = System.nanoTime();
+        add(String.format("%8.1f ms  %-24s %7.1f ms", (start - ORIGIN) / 1e6, phase, (now - start) / 1e6));
+    }
+
+    /** Records a point in time, such as the first paint or first keystroke. */
+    static void milestone(String name) {
+        add(String.format("%8.1f ms  %s", (System.nanoTime() - ORIGIN) / 1e6, name));
+    }
+
+    private static synchronized void add(String entry) {
+        entries.add(entry);
+    }
+
+    static synchronized String report() {
+        StringBuilder report = new StringBuilder("   start  phase                    duration\n");
+        for (String entry : entries) report.append(entry).append('\n');
+        return report.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package editor.app;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Keeps the heap held by inactive tabs under a budget.
+ * <p>
+ * Tabs are tracked in least-recently-used order. When the inactive tabs together hold
+ * more than the budget, the oldest resident tabs are compressed first; if that is not
+ * enough, the oldest compressed tabs are spilled to temp files. The active tab is never
+ * released. The budget is set with {@code -Deditor.tabs.heapBudgetMB} (default 256).
+ */
+class TabMemoryManager {
+
+    private static final long DEFAULT_BUDGET_MB = 256;
+
+    private final long budgetBytes;
+    /** Iteration order is least- to most-recently used. */
+    private final LinkedHashSet<DocumentTab> lru = new LinkedHashSet<>();
+
+    TabMemoryManager() {
+        this(Long.getLong("editor.tabs.heapBudgetMB", DEFAULT_BUDGET_MB) * 1024 * 1024);
+    }
+
+    TabMemoryManager(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    void add(DocumentTab tab) {
+        lru.add(tab);
+    }
+
+    void remove(DocumentTab tab) {
+        lru.remove(tab);
+        tab.dispose();
+    }
+
+    /**
+     * Marks the tab as most recently used, restores its text if it was released,
+     * then brings the other tabs back under budget. Must be called on the EDT.
+     */
+    void activate(DocumentTab tab) throws IOException {
+        lru.remove(tab);
+        lru.add(tab);
+        tab.rehydrate();
+        enforceBudget(tab);
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    long inactiveHeapBytes(DocumentTab active) {
+        long total = 0;
+        for (DocumentTab tab : lru) {
+            if (tab != active) total += tab.estimateHeapBytes();
+        }
+        return total;
+    }
+
+    private void enforceBudget(DocumentTab active) throws IOException {
+        long used = inactiveHeapBytes(active);
+        if (used <= budgetBytes) return;
+
+        List<DocumentTab> candidates = new ArrayList<>(lru);
+        candidates.remove(active);
+
+        // First pass: compress resident tabs, oldest first.
+        for (Iterator<DocumentTab> it = candidates.iterator(); it.hasNext() && used > budgetBytes; ) {
+            DocumentTab tab = it.next();
+            if (tab.getResidency() != DocumentTab.Residency.RESIDENT) continue;
+            long before = tab.estimateHeapBytes();
+            tab.compress();
+            used += tab.estimateHeapBytes() - before;
+        }
+
+        // Second pass: spill compressed tabs to disk, oldest first.
+        for (Iterator<DocumentTab> it = candidates.iterator(); it.hasNext() && used > budgetBytes; ) {
+            DocumentTab tab = it.next();
+            if (tab.getResidency() != DocumentTab.Residency.COMPRESSED) continue;
+            used -= tab.estimateHeapBytes();
+            tab.spill();
+        }
+    }
+}
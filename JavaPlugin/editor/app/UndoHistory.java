@@ -0,0 +1,443 @@
+package editor.app;
+
+import javax.swing.text.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Undo/redo history that records compact text deltas instead of Swing edit objects.
+ * <p>
+ * Consecutive typing is merged into one edit per word, and a pause longer than the
+ * coalescing window also starts a new edit. History is bounded by a byte budget
+ * ({@code -Deditor.undo.budgetKB}, default 8192): when it runs over, the oldest large
+ * edits are compressed first and then the oldest edits are dropped.
+ * <p>
+ * Deltas are keyed by offset rather than by document, so the history survives the
+ * document being swapped out when a tab is released and rehydrated.
+ * <p>
+ * Changes made between {@link #beginCompoundEdit()} and {@link #endCompoundEdit()} are
+ * undone and redone as one step, while still storing only the ranges that changed.
+ */
+class UndoHistory {
+
+    private static final long DEFAULT_BUDGET_KB = 8192;
+    private static final long COALESCE_MILLIS = 1000;
+    /** Edits with less text than this are not worth compressing. */
+    private static final int COMPRESS_THRESHOLD_CHARS = 256;
+    /** Approximate fixed cost of one edit object and its references. */
+    private static final int EDIT_OVERHEAD_BYTES = 48;
+
+    private final long budgetBytes;
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    /** Sealed edits large enough to compress, oldest first. */
+    private final Deque<Edit> compressible = new ArrayDeque<>();
+    private final DocumentFilter filter = new RecordingFilter();
+
+    private AbstractDocument document;
+    private boolean applying;
+    private int compoundDepth;
+    private CompoundBuilder compound;
+    private long bytes;
+    private long droppedEdits;
+    private int compressedEdits;
+
+    UndoHistory() {
+        this(Long.getLong("editor.undo.budgetKB", DEFAULT_BUDGET_KB) * 1024);
+    }
+
+    UndoHistory(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Starts recording edits made to the given document. A previously installed
+     * document stops being recorded; the existing history is kept.
+     */
+    void install(Document doc) {
+        if (document != null) document.setDocumentFilter(null);
+        document = doc instanceof AbstractDocument ? (AbstractDocument) doc : null;
+        if (document != null) document.setDocumentFilter(filter);
+        sealLast();
+    }
+
+    /**
+     * Starts grouping edits into a single undo step. Calls nest; the group closes with
+     * the outermost {@link #endCompoundEdit()}.
+     */
+    void beginCompoundEdit() {
+        if (compoundDepth++ == 0) {
+            sealLast();
+            compound = new CompoundBuilder();
+        }
+    }
+
+    void endCompoundEdit() {
+        if (compoundDepth == 0 || --compoundDepth > 0) return;
+        CompoundBuilder group = compound;
+        compound = null;
+        if (group.parts.isEmpty()) return;
+        clearRedo();
+        Edit edit = group.build(System.currentTimeMillis());
+        undoStack.addLast(edit);
+        bytes += edit.sizeBytes();
+        if (edit.textLength() >= COMPRESS_THRESHOLD_CHARS) compressible.addLast(edit);
+        enforceBudget();
+    }
+
+    boolean canUndo() { return !undoStack.isEmpty(); }
+
+    boolean canRedo() { return !redoStack.isEmpty(); }
+
+    /**
+     * Reverts the most recent edit.
+     *
+     * @return the offset the caret should move to, or -1 if nothing was undone.
+     */
+    int undo() throws BadLocationException {
+        if (undoStack.isEmpty() || document == null) return -1;
+        Edit edit = undoStack.pollLast();
+        edit.seal();
+        String removed = edit.removed();
+        String inserted = edit.inserted();
+        int caret;
+        if (edit.parts == null) {
+            apply(edit.offset, inserted.length(), removed);
+            caret = edit.offset + removed.length();
+        } else {
+            // Parts were applied in order, so revert them last to first.
+            int[] parts = edit.parts;
+            int removedEnd = removed.length();
+            int insertedEnd = inserted.length();
+            caret = -1;
+            for (int i = parts.length - 3; i >= 0; i -= 3) {
+                int removedStart = removedEnd - parts[i + 1];
+                int insertedStart = insertedEnd - parts[i + 2];
+                apply(parts[i], parts[i + 2], removed.substring(removedStart, removedEnd));
+                caret = parts[i] + parts[i + 1];
+                removedEnd = removedStart;
+                insertedEnd = insertedStart;
+            }
+        }
+        redoStack.addLast(edit);
+        return caret;
+    }
+
+    /**
+     * Re-applies the most recently undone edit.
+     *
+     * @return the offset the caret should move to, or -1 if nothing was redone.
+     */
+    int redo() throws BadLocationException {
+        if (redoStack.isEmpty() || document == null) return -1;
+        Edit edit = redoStack.pollLast();
+        String removed = edit.removed();
+        String inserted = edit.inserted();
+        int caret;
+        if (edit.parts == null) {
+            apply(edit.offset, removed.length(), inserted);
+            caret = edit.offset + inserted.length();
+        } else {
+            int[] parts = edit.parts;
+            int insertedStart = 0;
+            caret = -1;
+            for (int i = 0; i < parts.length; i += 3) {
+                int insertedEnd = insertedStart + parts[i + 2];
+                apply(parts[i], parts[i + 1], inserted.substring(insertedStart, insertedEnd));
+                caret = parts[i] + parts[i + 2];
+                insertedStart = insertedEnd;
+            }
+        }
+        undoStack.addLast(edit);
+        return caret;
+    }
+
+    void discardAllEdits() {
+        undoStack.forEach(Edit::drop);
+        redoStack.forEach(Edit::drop);
+        undoStack.clear();
+        redoStack.clear();
+        compressible.clear();
+        bytes = 0;
+        compressedEdits = 0;
+    }
+
+    /** Estimated heap held by undo and redo state, in bytes. */
+    long getHeapBytes() { return bytes; }
+
+    long getBudgetBytes() { return budgetBytes; }
+
+    int getUndoCount() { return undoStack.size(); }
+
+    int getRedoCount() { return redoStack.size(); }
+
+    int getCompressedCount() { return compressedEdits; }
+
+    long getDroppedCount() { return droppedEdits; }
+
+    private void apply(int offset, int removeLength, String insert) throws BadLocationException {
+        applying = true;
+        try {
+            if (removeLength > 0) document.remove(offset, removeLength);
+            if (!insert.isEmpty()) document.insertString(offset, insert, null);
+        } finally {
+            applying = false;
+        }
+    }
+
+    private void record(int offset, String removed, String inserted) {
+        if (removed.isEmpty() && inserted.isEmpty()) return;
+        if (compound != null) {
+            compound.add(offset, removed, inserted);
+            return;
+        }
+        clearRedo();
+
+        long now = System.currentTimeMillis();
+        Edit last = undoStack.peekLast();
+        if (last != null && last.tryCoalesce(offset, removed, inserted, now)) {
+            bytes += 2L * (removed.length() + inserted.length());
+        } else {
+            sealLast();
+            Edit edit = new Edit(offset, removed, inserted, now);
+            undoStack.addLast(edit);
+            bytes += edit.sizeBytes();
+            if (edit.isSealed() && edit.textLength() >= COMPRESS_THRESHOLD_CHARS) compressible.addLast(edit);
+        }
+        enforceBudget();
+    }
+
+    private void sealLast() {
+        Edit last = undoStack.peekLast();
+        if (last != null && !last.isSealed()) {
+            long before = last.sizeBytes();
+            last.seal();
+            bytes += last.sizeBytes() - before;
+            if (last.textLength() >= COMPRESS_THRESHOLD_CHARS) compressible.addLast(last);
+        }
+    }
+
+    private void clearRedo() {
+        for (Edit edit : redoStack) {
+            edit.drop();
+            bytes -= edit.sizeBytes();
+            if (edit.isCompressed()) compressedEdits--;
+        }
+        redoStack.clear();
+    }
+
+    private void enforceBudget() {
+        while (bytes > budgetBytes && !compressible.isEmpty()) {
+            Edit edit = compressible.pollFirst();
+            if (edit.isDropped() || edit.isCompressed()) continue;
+            long before = edit.sizeBytes();
+            edit.compress();
+            bytes += edit.sizeBytes() - before;
+            compressedEdits++;
+        }
+        // Never drop the edit still being typed into.
+        while (bytes > budgetBytes && undoStack.size() > 1) {
+            Edit edit = undoStack.pollFirst();
+            edit.drop();
+            bytes -= edit.sizeBytes();
+            if (edit.isCompressed()) compressedEdits--;
+            droppedEdits++;
+        }
+    }
+
+    /** Collects the changes made inside a compound edit, in the order they happened. */
+    private static final class CompoundBuilder {
+        final List<int[]> parts = new ArrayList<>();
+        final StringBuilder removed = new StringBuilder();
+        final StringBuilder inserted = new StringBuilder();
+
+        void add(int offset, String rem, String ins) {
+            parts.add(new int[] {offset, rem.length(), ins.length()});
+            removed.append(rem);
+            inserted.append(ins);
+        }
+
+        Edit build(long now) {
+            if (parts.size() == 1) {
+                Edit edit = new Edit(parts.get(0)[0], removed.toString(), inserted.toString(), now);
+                edit.seal();
+                return edit;
+            }
+            int[] flat = new int[parts.size() * 3];
+            for (int i = 0; i < parts.size(); i++) System.arraycopy(parts.get(i), 0, flat, i * 3, 3);
+            return new Edit(flat, removed.toString(), inserted.toString(), now);
+        }
+    }
+
+    /**
+     * One undoable change: text {@code removed} at {@code offset} was replaced by
+     * {@code inserted}. While unsealed, typing may still extend it.
+     * <p>
+     * A compound edit holds several such changes. Their texts are concatenated in
+     * {@code removed} and {@code inserted}, and {@code parts} holds an
+     * (offset, removed length, inserted length) triple for each, in the order applied.
+     */
+    private static final class Edit {
+        int offset;
+        final int[] parts;
+        private StringBuilder removedBuilder;
+        private StringBuilder insertedBuilder;
+        private String removed;
+        private String inserted;
+        private byte[] packed;
+        private int packedSplit;
+        private long lastTouched;
+        private boolean dropped;
+
+        Edit(int offset, String removed, String inserted, long now) {
+            this.offset = offset;
+            this.parts = null;
+            this.lastTouched = now;
+            // Only single-character changes look like typing and stay open for merging.
+            if (removed.length() + inserted.length() == 1) {
+                removedBuilder = new StringBuilder(removed);
+                insertedBuilder = new StringBuilder(inserted);
+            } else {
+                this.removed = removed;
+                this.inserted = inserted;
+            }
+        }
+
+        Edit(int[] parts, String removed, String inserted, long now) {
+            this.offset = parts[0];
+            this.parts = parts;
+            this.removed = removed;
+            this.inserted = inserted;
+            this.lastTouched = now;
+        }
+
+        boolean tryCoalesce(int at, String rem, String ins, long now) {
+            if (isSealed() || now - lastTouched > COALESCE_MILLIS) return false;
+            if (rem.length() + ins.length() != 1) return false;
+
+            if (rem.isEmpty() && removedBuilder.length() == 0
+                    && at == offset + insertedBuilder.length()) {
+                // Typing forward; a non-space after a space starts a new word.
+                char c = ins.charAt(0);
+                int n = insertedBuilder.length();
+                if (n > 0 && !Character.isWhitespace(c) && Character.isWhitespace(insertedBuilder.charAt(n - 1))) {
+                    return false;
+                }
+                insertedBuilder.append(c);
+            } else if (ins.isEmpty() && insertedBuilder.length() == 0 && at == offset - 1) {
+                // Backspace.
+                removedBuilder.insert(0, rem);
+                offset = at;
+            } else if (ins.isEmpty() && insertedBuilder.length() == 0 && at == offset) {
+                // Forward delete.
+                removedBuilder.append(rem);
+            } else {
+                return false;
+            }
+            lastTouched = now;
+            return true;
+        }
+
+        boolean isSealed() { return removedBuilder == null; }
+
+        void seal() {
+            if (isSealed()) return;
+            removed = removedBuilder.toString();
+            inserted = insertedBuilder.toString();
+            removedBuilder = null;
+            insertedBuilder = null;
+        }
+
+        boolean isCompressed() { return packed != null; }
+
+        boolean isDropped() { return dropped; }
+
+        void drop() { dropped = true; }
+
+        int textLength() {
+            if (packed != null) return 0;
+            return removed().length() + inserted().length();
+        }
+
+        String removed() {
+            if (removedBuilder != null) return removedBuilder.toString();
+            if (packed != null) return unpack().substring(0, packedSplit);
+            return removed;
+        }
+
+        String inserted() {
+            if (insertedBuilder != null) return insertedBuilder.toString();
+            if (packed != null) return unpack().substring(packedSplit);
+            return inserted;
+        }
+
+        long sizeBytes() {
+            long partBytes = parts == null ? 0 : 4L * parts.length;
+            if (packed != null) return EDIT_OVERHEAD_BYTES + partBytes + packed.length;
+            if (removedBuilder != null) {
+                return EDIT_OVERHEAD_BYTES + 2L * (removedBuilder.length() + insertedBuilder.length());
+            }
+            return EDIT_OVERHEAD_BYTES + partBytes + 2L * (removed.length() + inserted.length());
+        }
+
+        void compress() {
+            seal();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (Writer out = new OutputStreamWriter(new DeflaterOutputStream(bytes, deflater), StandardCharsets.UTF_8)) {
+                out.write(removed);
+                out.write(inserted);
+            } catch (IOException e) {
+                return; // in-memory streams do not fail; keep the edit uncompressed
+            } finally {
+                deflater.end();
+            }
+            packed = bytes.toByteArray();
+            packedSplit = removed.length();
+            removed = null;
+            inserted = null;
+        }
+
+        private String unpack() {
+            try (Reader in = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(packed)), StandardCharsets.UTF_8)) {
+                StringBuilder text = new StringBuilder();
+                char[] buf = new char[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) text.append(buf, 0, n);
+                return text.toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /** Captures every change, with the removed text, before it reaches the document. */
+    private final class RecordingFilter extends DocumentFilter {
+        @Override
+        public void insertString(FilterBypass fb, int offset, String text, AttributeSet attr) throws BadLocationException {
+            fb.insertString(offset, text, attr);
+            if (!applying && text != null) record(offset, "", text);
+        }
+
+        @Override
+        public void remove(FilterBypass fb, int offset, int length) throws BadLocationException {
+            String removed = !applying && length > 0 ? fb.getDocument().getText(offset, length) : null;
+            fb.remove(offset, length);
+            if (removed != null) record(offset, removed, "");
+        }
+
+        @Override
+        public void replace(FilterBypass fb, int offset, int length, String text, AttributeSet attrs) throws BadLocationException {
+            String removed = !applying && length > 0 ? fb.getDocument().getText(offset, length) : "";
+            fb.replace(offset, length, text, attrs);
+            if (!applying) record(offset, removed, text == null ? "" : text);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package plugins.caseconvert;
+
+import editor.api.BatchPlugin;
+import editor.api.BulkTransform;
+import javax.swing.JTextArea;
+import java.util.Locale;
+
+/**
+ * A plugin that capitalises the first letter of each word in the selection.
+ * In batch mode there is no selection, so the whole document is converted.
+ */
+public class TitleCasePlugin implements BatchPlugin {
+
+    private final BulkTransform transform = BulkTransform.titleCase(Locale.getDefault());
+
+    @Override
+    public String getName() {
+        return "Convert Selection to Title Case";
+    }
+
+    @Override
+    public void execute(JTextArea textArea) {
+        transform.applyTo(textArea);
+    }
+
+    @Override
+    public Result process(String text) {
+        String result = transform.applyTo(text);
+        return result == text ? Result.unchanged("Already title case.")
+                : Result.changed(result, "Converted to title case.");
+    }
+}
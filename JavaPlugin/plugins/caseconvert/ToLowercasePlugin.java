@@ -0,0 +1,32 @@
+package plugins.caseconvert;
+
+import editor.api.BatchPlugin;
+import editor.api.BulkTransform;
+import javax.swing.JTextArea;
+import java.util.Locale;
+
+/**
+ * A plugin that converts the selected text to lowercase.
+ * In batch mode there is no selection, so the whole document is converted.
+ */
+public class ToLowercasePlugin implements BatchPlugin {
+
+    private final BulkTransform transform = BulkTransform.lowerCase(Locale.getDefault());
+
+    @Override
+    public String getName() {
+        return "Convert Selection to Lowercase";
+    }
+
+    @Override
+    public void execute(JTextArea textArea) {
+        transform.applyTo(textArea);
+    }
+
+    @Override
+    public Result process(String text) {
+        String result = transform.applyTo(text);
+        return result == text ? Result.unchanged("Already lowercase.")
+                : Result.changed(result, "Converted to lowercase.");
+    }
+}
@@ -1,6 +1,6 @@
 package plugins.codeformatter;
 
-import editor.api.Plugin;
+import editor.api.BatchPlugin;
 import javax.swing.JTextArea;
 import javax.swing.JOptionPane;
 import java.util.regex.Matcher;
@@ -14,7 +14,7 @@ import java.util.Set;
  * This version includes a more robust language detection system and
  * formatting rules for Java, Python, and C++.
  */
-public class CodeFormatterPlugin implements Plugin {
+public class CodeFormatterPlugin implements BatchPlugin {
 
     // Define language-specific keywords for more accurate detection
     private static final Set<String> JAVA_KEYWORDS = new HashSet<>(Arrays.asList(
@@ -45,21 +45,7 @@ public class CodeFormatterPlugin implements Plugin {
         String language = detectLanguage(originalText);
 
         // Step 2: Format the code based on the detected language
-        String formattedText;
-        switch (language) {
-            case "Java":
-                formattedText = formatJavaCode(originalText);
-                break;
-            case "Python":
-                formattedText = formatPythonCode(originalText);
-                break;
-            case "C++":
-                formattedText = formatCplusplusCode(originalText);
-                break;
-            default:
-                formattedText = originalText;
-                break;
-        }
+        String formattedText = format(language, originalText);
 
         // Step 3: Update the text area and show a message
         if (!formattedText.equals(originalText)) {
@@ -78,6 +64,41 @@ public class CodeFormatterPlugin implements Plugin {
         }
     }
 
+    @Override
+    public Result process(String text) {
+        if (text.trim().isEmpty()) {
+            return Result.unchanged("The document is empty.");
+        }
+        String language = detectLanguage(text);
+        if (language.equals("Unknown")) {
+            return Result.unchanged("Language could not be detected. No formatting applied.");
+        }
+        String formattedText = format(language, text);
+        if (formattedText.equals(text)) {
+            return Result.unchanged("Code formatting for " + language + " was not needed.");
+        }
+        return Result.changed(formattedText, "Code has been formatted for " + language + ".");
+    }
+
+    /**
+     * Formats the text with the rules for the given language.
+     * @param language The detected language.
+     * @param text The code to format.
+     * @return The formatted code, or the original text for an unknown language.
+     */
+    private String format(String language, String text) {
+        switch (language) {
+            case "Java":
+                return formatJavaCode(text);
+            case "Python":
+                return formatPythonCode(text);
+            case "C++":
+                return formatCplusplusCode(text);
+            default:
+                return text;
+        }
+    }
+
     /**
      * Determines the most likely programming language based on a set of keywords.
      * @param text The text to analyze.
@@ -0,0 +1,32 @@
+package plugins.linetools;
+
+import editor.api.BatchPlugin;
+import editor.api.BulkTransform;
+import javax.swing.JTextArea;
+import java.util.Locale;
+
+/**
+ * A plugin that sorts the selected lines, or the whole document if nothing is selected,
+ * using the collation rules of the default locale.
+ */
+public class SortLinesPlugin implements BatchPlugin {
+
+    private final BulkTransform transform = BulkTransform.sortLines(Locale.getDefault());
+
+    @Override
+    public String getName() {
+        return "Sort Lines";
+    }
+
+    @Override
+    public void execute(JTextArea textArea) {
+        transform.applyTo(textArea);
+    }
+
+    @Override
+    public Result process(String text) {
+        String result = transform.applyTo(text);
+        return result == text ? Result.unchanged("Lines already sorted.")
+                : Result.changed(result, "Sorted lines.");
+    }
+}
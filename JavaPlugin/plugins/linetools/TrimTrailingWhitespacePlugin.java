@@ -0,0 +1,31 @@
+package plugins.linetools;
+
+import editor.api.BatchPlugin;
+import editor.api.BulkTransform;
+import javax.swing.JTextArea;
+
+/**
+ * A plugin that removes whitespace at the end of the selected lines, or of every line
+ * if nothing is selected.
+ */
+public class TrimTrailingWhitespacePlugin implements BatchPlugin {
+
+    private final BulkTransform transform = BulkTransform.trimTrailingWhitespace();
+
+    @Override
+    public String getName() {
+        return "Trim Trailing Whitespace";
+    }
+
+    @Override
+    public void execute(JTextArea textArea) {
+        transform.applyTo(textArea);
+    }
+
+    @Override
+    public Result process(String text) {
+        String result = transform.applyTo(text);
+        return result == text ? Result.unchanged("No trailing whitespace.")
+                : Result.changed(result, "Trimmed trailing whitespace.");
+    }
+}
@@ -0,0 +1,31 @@
+package plugins.linetools;
+
+import editor.api.BatchPlugin;
+import editor.api.BulkTransform;
+import javax.swing.JTextArea;
+
+/**
+ * A plugin that removes repeated lines from the selected lines, or from the whole
+ * document if nothing is selected. The first occurrence of each line is kept.
+ */
+public class UniqueLinesPlugin implements BatchPlugin {
+
+    private final BulkTransform transform = BulkTransform.uniqueLines();
+
+    @Override
+    public String getName() {
+        return "Remove Duplicate Lines";
+    }
+
+    @Override
+    public void execute(JTextArea textArea) {
+        transform.applyTo(textArea);
+    }
+
+    @Override
+    public Result process(String text) {
+        String result = transform.applyTo(text);
+        return result == text ? Result.unchanged("No duplicate lines.")
+                : Result.changed(result, "Removed duplicate lines.");
+    }
+}
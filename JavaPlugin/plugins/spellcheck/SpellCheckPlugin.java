@@ -1,13 +1,18 @@
 package plugins.spellcheck;
 
-import editor.api.Plugin;
+import editor.api.BatchPlugin;
+import editor.api.CacheablePlugin;
 import javax.swing.*;
 import java.util.*;
 import java.util.regex.*;
 
-public class SpellCheckPlugin implements Plugin {
+public class SpellCheckPlugin implements BatchPlugin, CacheablePlugin<java.util.List<String>> {
 
-    private Set<String> dictionary;
+    // Shared and never modified, so batch runs can check files concurrently.
+    private static final Set<String> DICTIONARY = new HashSet<>(Arrays.asList(
+            "this", "is", "a", "simple", "spell", "check", "plugin", "for",
+            "the", "modern", "plugin", "text", "editor", "java", "code"
+    ));
 
     @Override
     public String getName() {
@@ -15,22 +20,12 @@ public class SpellCheckPlugin implements Plugin {
     }
 
     @Override
-    public void execute(JTextArea editor) {
-        loadDictionary();
-
-        String text = editor.getText().toLowerCase();
-        Matcher matcher = Pattern.compile("\\b\\w+\\b").matcher(text);
-
-
-        java.util.List<String> misspelled = new ArrayList<>();
-
-        while (matcher.find()) {
-            String word = matcher.group();
-            if (!dictionary.contains(word)) {
-                misspelled.add(word);
-            }
-        }
+    public java.util.List<String> analyze(CharSequence text, int selectionStart, int selectionEnd) {
+        return Collections.unmodifiableList(findMisspelled(text));
+    }
 
+    @Override
+    public void show(JTextArea editor, java.util.List<String> misspelled) {
         if (misspelled.isEmpty()) {
             JOptionPane.showMessageDialog(editor, "No spelling errors found!",
                     "Spell Check", JOptionPane.INFORMATION_MESSAGE);
@@ -41,11 +36,30 @@ public class SpellCheckPlugin implements Plugin {
         }
     }
 
-    private void loadDictionary() {
-        dictionary = new HashSet<>(Arrays.asList(
-                "this", "is", "a", "simple", "spell", "check", "plugin", "for",
-                "the", "modern", "plugin", "text", "editor", "java", "code"
-     
-        ));
+    @Override
+    public boolean usesSelection() {
+        return false;
+    }
+
+    @Override
+    public Result process(String text) {
+        java.util.List<String> misspelled = findMisspelled(text);
+        return Result.unchanged(misspelled.isEmpty() ? "No spelling errors found!"
+                : misspelled.size() + " misspelled: " + String.join(", ", misspelled));
+    }
+
+    private java.util.List<String> findMisspelled(CharSequence text) {
+        // Words are lower-cased one at a time rather than copying the whole text.
+        Matcher matcher = Pattern.compile("\\b\\w+\\b").matcher(text);
+
+        java.util.List<String> misspelled = new ArrayList<>();
+
+        while (matcher.find()) {
+            String word = matcher.group().toLowerCase();
+            if (!DICTIONARY.contains(word)) {
+                misspelled.add(word);
+            }
+        }
+        return misspelled;
     }
 }
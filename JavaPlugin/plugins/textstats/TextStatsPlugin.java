@@ -1,16 +1,19 @@
 package plugins.textstats;
 
-import editor.api.Plugin;
+import editor.api.BatchPlugin;
+import editor.api.CacheablePlugin;
 import javax.swing.JTextArea;
 import javax.swing.JOptionPane;
-import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * A plugin to provide text statistics such as sentence count and average word length.
  */
-public class TextStatsPlugin implements Plugin {
+public class TextStatsPlugin implements BatchPlugin, CacheablePlugin<String> {
+
+    private static final Pattern SENTENCE_END = Pattern.compile("[.!?]\\s*");
+    private static final Pattern WORD = Pattern.compile("\\b\\w+\\b");
 
     /**
      * Returns the name of the plugin.
@@ -23,36 +26,93 @@ public class TextStatsPlugin implements Plugin {
     }
 
     /**
-     * Executes the plugin's functionality on the given text area.
-     * It calculates the number of sentences and the average word length,
-     * then displays the results in a dialog box.
+     * Calculates the number of sentences and the average word length.
+     * The result depends only on the text, so the editor may reuse it.
      *
-     * @param textArea The text area to operate on.
+     * @param text The document text; it is read in place, never copied.
+     * @return The message to display.
      */
     @Override
-    public void execute(JTextArea textArea) {
-        String text = textArea.getText();
-
+    public String analyze(CharSequence text, int selectionStart, int selectionEnd) {
         // Check if the document is empty or contains only whitespace
+        if (isBlank(text, 0, text.length())) {
+            return "The document is empty.";
+        }
+
+        long sentenceCount = countSentences(text);
+        double averageWordLength = averageWordLength(text);
+
+        // Format the output string with the calculated statistics.
+        return String.format(
+            "Text Statistics:\n\n" +
+            "Sentence Count: %d\n" +
+            "Average Word Length: %.2f characters",
+            sentenceCount, averageWordLength
+        );
+    }
+
+    /**
+     * Displays the statistics in a dialog box.
+     *
+     * @param textArea The text area the plugin was run on.
+     * @param message The result of {@link #analyze}.
+     */
+    @Override
+    public void show(JTextArea textArea, String message) {
+        JOptionPane.showMessageDialog(textArea, message,
+                "Text Statistics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    @Override
+    public boolean usesSelection() {
+        return false;
+    }
+
+    /**
+     * Calculates the same statistics without a UI, as a single report line.
+     *
+     * @param text The document text.
+     * @return The statistics; the text is never changed.
+     */
+    @Override
+    public Result process(String text) {
         if (text.trim().isEmpty()) {
-            JOptionPane.showMessageDialog(textArea, "The document is empty.",
-                    "Text Statistics", JOptionPane.INFORMATION_MESSAGE);
-            return;
+            return Result.unchanged("The document is empty.");
+        }
+        return Result.unchanged(String.format("Sentence Count: %d, Average Word Length: %.2f characters",
+                countSentences(text), averageWordLength(text)));
+    }
+
+    /**
+     * Counts sentences. A sentence is considered to end with a '.', '!', or '?' followed by
+     * optional whitespace. Blank stretches between those endings, such as the one after
+     * trailing punctuation, are not counted.
+     */
+    private long countSentences(CharSequence text) {
+        long count = 0;
+        int start = 0;
+        Matcher matcher = SENTENCE_END.matcher(text);
+        while (matcher.find()) {
+            if (!isBlank(text, start, matcher.start())) count++;
+            start = matcher.end();
         }
+        if (!isBlank(text, start, text.length())) count++;
+        return count;
+    }
 
-        // --- Calculate Sentence Count ---
-        // A sentence is considered to end with a '.', '!', or '?' followed by optional whitespace.
-        // The split method divides the string and the stream filters out empty strings
-        // that may result from trailing punctuation.
-        String[] sentences = text.split("[.!?]\\s*");
-        long sentenceCount = Arrays.stream(sentences)
-                                   .filter(s -> !s.trim().isEmpty())
-                                   .count();
+    /** Whether text[start, end) holds only whitespace, as {@link String#trim()} sees it. */
+    private static boolean isBlank(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
 
-        // --- Calculate Average Word Length ---
-        // Use a regex pattern to find all words (sequences of word characters).
-        Pattern wordPattern = Pattern.compile("\\b\\w+\\b");
-        Matcher matcher = wordPattern.matcher(text);
+    /**
+     * Calculates the average length of all words (sequences of word characters).
+     */
+    private double averageWordLength(CharSequence text) {
+        Matcher matcher = WORD.matcher(text);
 
         long totalCharactersInWords = 0;
         long wordCount = 0;
@@ -60,26 +120,13 @@ public class TextStatsPlugin implements Plugin {
         // Iterate through all found words, counting their total length and the number of words.
         while (matcher.find()) {
             wordCount++;
-            totalCharactersInWords += matcher.group().length();
+            totalCharactersInWords += matcher.end() - matcher.start();
         }
 
-        double averageWordLength = 0;
         // Prevent division by zero if there are no words
-        if (wordCount > 0) {
-            averageWordLength = (double) totalCharactersInWords / wordCount;
+        if (wordCount == 0) {
+            return 0;
         }
-
-        // --- Display Results ---
-        // Format the output string with the calculated statistics.
-        String message = String.format(
-            "Text Statistics:\n\n" +
-            "Sentence Count: %d\n" +
-            "Average Word Length: %.2f characters",
-            sentenceCount, averageWordLength
-        );
-
-        // Show the results in a non-blocking dialog box.
-        JOptionPane.showMessageDialog(textArea, message,
-                "Text Statistics", JOptionPane.INFORMATION_MESSAGE);
+        return (double) totalCharactersInWords / wordCount;
     }
 }
@@ -1,12 +1,17 @@
 package plugins.touppercase;
 
-import editor.api.Plugin;
+import editor.api.BatchPlugin;
+import editor.api.BulkTransform;
 import javax.swing.JTextArea;
+import java.util.Locale;
 
 /**
  * A plugin that converts the selected text to uppercase.
+ * In batch mode there is no selection, so the whole document is converted.
  */
-public class ToUppercasePlugin implements Plugin {
+public class ToUppercasePlugin implements BatchPlugin {
+
+    private final BulkTransform transform = BulkTransform.upperCase(Locale.getDefault());
 
     @Override
     public String getName() {
@@ -15,9 +20,13 @@ public class ToUppercasePlugin implements Plugin {
 
     @Override
     public void execute(JTextArea textArea) {
-        String selectedText = textArea.getSelectedText();
-        if (selectedText != null) {
-            textArea.replaceSelection(selectedText.toUpperCase());
-        }
+        transform.applyTo(textArea);
+    }
+
+    @Override
+    public Result process(String text) {
+        String upper = transform.applyTo(text);
+        return upper == text ? Result.unchanged("Already uppercase.")
+                : Result.changed(upper, "Converted to uppercase.");
     }
-}
\ No newline at end of file
+}
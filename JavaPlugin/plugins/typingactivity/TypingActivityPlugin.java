@@ -0,0 +1,49 @@
+package plugins.typingactivity;
+
+import editor.api.ChangeSubscriber;
+import javax.swing.JOptionPane;
+import javax.swing.JTextArea;
+
+/**
+ * A plugin that keeps live totals of the text typed and deleted in all documents.
+ * The totals are updated in the background from the editor's change events.
+ */
+public class TypingActivityPlugin implements ChangeSubscriber {
+
+    private long insertedChars;
+    private long removedChars;
+    private long changes;
+    private long batches;
+    private long gaps;
+
+    @Override
+    public String getName() {
+        return "Typing Activity";
+    }
+
+    @Override
+    public synchronized void documentChanged(Batch batch) {
+        batches++;
+        if (!batch.isComplete()) gaps++;
+        for (Change change : batch.getChanges()) {
+            insertedChars += change.insertedText.length();
+            removedChars += change.removedLength;
+            changes++;
+        }
+    }
+
+    @Override
+    public void execute(JTextArea textArea) {
+        String message;
+        synchronized (this) {
+            message = String.format(
+                    "Typing Activity:\n\n" +
+                    "Characters typed: %d\n" +
+                    "Characters deleted: %d\n" +
+                    "Edits: %d in %d batches%s",
+                    insertedChars, removedChars, changes, batches,
+                    gaps == 0 ? "" : "\n(" + gaps + " batches followed dropped events)");
+        }
+        JOptionPane.showMessageDialog(textArea, message, "Typing Activity", JOptionPane.INFORMATION_MESSAGE);
+    }
+}
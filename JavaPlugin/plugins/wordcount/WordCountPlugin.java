@@ -1,13 +1,17 @@
 package plugins.wordcount;
 
-import editor.api.Plugin;
+import editor.api.CacheablePlugin;
 import javax.swing.JTextArea;
 import javax.swing.JOptionPane;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A plugin that counts the words in the text area.
  */
-public class WordCountPlugin implements Plugin {
+public class WordCountPlugin implements CacheablePlugin<Integer> {
+
+    private static final Pattern WORD = Pattern.compile("\\S+");
 
     @Override
     public String getName() {
@@ -15,13 +19,24 @@ public class WordCountPlugin implements Plugin {
     }
 
     @Override
-    public void execute(JTextArea textArea) {
-        String text = textArea.getText();
-        if (text == null || text.trim().isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Word count: 0");
-            return;
+    public Integer analyze(CharSequence text, int selectionStart, int selectionEnd) {
+        if (text == null) {
+            return 0;
         }
-        String[] words = text.trim().split("\\s+");
-        JOptionPane.showMessageDialog(null, "Word count: " + words.length);
+        // Matching in place counts the words without copying the document.
+        int words = 0;
+        Matcher matcher = WORD.matcher(text);
+        while (matcher.find()) words++;
+        return words;
+    }
+
+    @Override
+    public void show(JTextArea textArea, Integer words) {
+        JOptionPane.showMessageDialog(null, "Word count: " + words);
+    }
+
+    @Override
+    public boolean usesSelection() {
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package editor.api;
+
+import java.util.Locale;
+
+/**
+ * Regression checks for {@link BulkTransform}, runnable without a test framework:
+ * {@code java -cp .:tests editor.api.BulkTransformCheck}. Exits with status 1 on failure.
+ */
+public class BulkTransformCheck {
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        // Lines longer than a chunk must still be trimmed only at their end.
+        String words = repeat("word ", 40000);
+        check("long line before a newline",
+                BulkTransform.trimTrailingWhitespace().applyTo(words + "end   \nnext  \n"),
+                words + "end\nnext\n");
+        check("long final line without a newline",
+                BulkTransform.trimTrailingWhitespace().applyTo(words + "end   "),
+                words + "end");
+        check("long final line after a short one",
+                BulkTransform.trimTrailingWhitespace().applyTo("x\n" + words + "end "),
+                "x\n" + words + "end");
+        check("long line, upper case",
+                BulkTransform.upperCase(Locale.ROOT).applyTo(words),
+                words.toUpperCase(Locale.ROOT));
+
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All BulkTransform checks passed");
+    }
+
+    private static void check(String name, String actual, String expected) {
+        if (!expected.equals(actual)) {
+            failures++;
+            System.err.println("FAILED: " + name + " (expected " + expected.length()
+                    + " chars, got " + actual.length() + ")");
+        }
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder out = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) out.append(s);
+        return out.toString();
+    }
+}